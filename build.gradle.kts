@@ -7,6 +7,7 @@ plugins {
     id ("com.gradle.plugin-publish") version "1.2.1"
     id ("org.jetbrains.kotlin.jvm") version "1.7.10"
     id ("org.sonarqube") version "4.0.0.2929"
+    id ("me.champeau.jmh") version "0.7.2"
 }
 
 version = "2.0-SNAPSHOT"
@@ -33,6 +34,8 @@ dependencies {
     testImplementation (libs.bundles.docker)
 
     "functionalImplementation" (project)
+
+    "jmhImplementation" (libs.jol)
 }
 
 java {
@@ -45,6 +48,10 @@ jacoco {
     toolVersion = "0.8.13"
 }
 
+jmh {
+    profilers.add("gc")
+}
+
 gradlePlugin {
     testSourceSets (functional, samples)
 
@@ -365,6 +365,21 @@ class ServerPluginFunctionalTest extends FunctionalTestCase {
             result = executeBuild('--build-cache', 'clean', 'assemble')
             assertThat(result.task(":processServerDescriptor").getOutcome(), is(FROM_CACHE))
         }
+
+        @Test
+        void 'validate plugin definition task should be cacheable'() {
+            buildFile << BUILD_SCRIPT_WITH_INLINE_DESCRIPTOR
+            File metaInfDir = createDirectory('src/main/resources/META-INF')
+            File definitionFile = new File(metaInfDir, 'build-server-plugin-test.xml')
+            definitionFile << PLUGIN_DEFINITION_FILE
+
+            BuildResult result
+            result = executeBuild('--build-cache', 'clean', 'assemble')
+            assertThat(result.task(":validatePluginDefinition").getOutcome(), is(SUCCESS))
+
+            result = executeBuild('--build-cache', 'clean', 'assemble')
+            assertThat(result.task(":validatePluginDefinition").getOutcome(), is(FROM_CACHE))
+        }
     }
 
     @Nested
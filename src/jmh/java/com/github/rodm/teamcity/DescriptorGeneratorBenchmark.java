@@ -0,0 +1,85 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity;
+
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing a server plugin descriptor with the streaming generator against building and
+ * serializing a Groovy node tree. Run with the GC profiler to compare the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DescriptorGeneratorBenchmark {
+
+    @Param({"10", "500"})
+    public int parameterCount;
+
+    private ServerPluginDescriptor descriptor;
+    private TeamCityVersion version;
+
+    @Setup
+    public void setup() {
+        Project project = ProjectBuilder.builder().build();
+        descriptor = project.getObjects().newInstance(ServerPluginDescriptor.class);
+        descriptor.setName("example-plugin");
+        descriptor.setDisplayName("Example Plugin");
+        descriptor.setVersion("1.0.0");
+        descriptor.setDescription("Example plugin description");
+        descriptor.setVendorName("Example Vendor");
+        descriptor.setVendorUrl("https://example.com");
+        descriptor.setUseSeparateClassloader(true);
+        descriptor.setAllowRuntimeReload(true);
+        descriptor.parameters(parameters -> {
+            for (int i = 0; i < parameterCount; i++) {
+                parameters.parameter("parameter" + i, "value " + i);
+            }
+        });
+        descriptor.dependencies(dependencies -> {
+            for (int i = 0; i < parameterCount / 10; i++) {
+                dependencies.plugin("plugin" + i);
+            }
+        });
+        version = TeamCityVersion.version("2020.1");
+    }
+
+    @Benchmark
+    public String nodeGenerator() {
+        StringWriter writer = new StringWriter();
+        new NodeServerPluginDescriptorGenerator(descriptor, version).writeTo(writer);
+        return writer.toString();
+    }
+
+    @Benchmark
+    public String streamingGenerator() {
+        StringWriter writer = new StringWriter();
+        new ServerPluginDescriptorGenerator(descriptor, version).writeTo(writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares collecting class files into a set of relative paths with collecting them into a {@link ClassIndex}.
+ * Run with the GC profiler, {@code gc.alloc.rate.norm} shows the bytes allocated for each set of classes, the
+ * retained size of each is printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ClassIndexBenchmark {
+
+    private static final int PACKAGES = 500;
+
+    @Param({"100000"})
+    public int classCount;
+
+    private String[][] paths;
+
+    @Setup
+    public void setup() {
+        paths = new String[classCount][];
+        for (int i = 0; i < classCount; i++) {
+            paths[i] = new String[] {"com", "example", "plugin", "module" + (i % PACKAGES), "GeneratedClass" + i + ".class"};
+        }
+    }
+
+    @Benchmark
+    public Set<String> relativePathSet() {
+        Set<String> classes = new LinkedHashSet<>();
+        for (String[] path : paths) {
+            classes.add(String.join("/", path));
+        }
+        return classes;
+    }
+
+    @Benchmark
+    public ClassIndex classIndex() {
+        ClassIndex classes = new ClassIndex();
+        for (String[] path : paths) {
+            classes.add(path);
+        }
+        return classes;
+    }
+
+    @TearDown(Level.Trial)
+    public void printRetainedSize() {
+        long pathSetSize = GraphLayout.parseInstance(relativePathSet()).totalSize();
+        long classIndexSize = GraphLayout.parseInstance(classIndex()).totalSize();
+        System.out.printf("Retained size for %d classes: relative path set %d bytes, class index %d bytes%n",
+            classCount, pathSetSize, classIndexSize);
+    }
+}
@@ -15,9 +15,10 @@
  */
 package com.github.rodm.teamcity;
 
-import groovy.util.Node;
-import groovy.xml.XmlUtil;
+import com.github.rodm.teamcity.internal.DescriptorWriter;
+import org.gradle.api.GradleException;
 
+import java.io.IOException;
 import java.io.Writer;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -25,6 +26,9 @@ import java.util.Map;
 
 public class AgentPluginDescriptorGenerator {
 
+    private static final String ROOT_ELEMENT = "teamcity-agent-plugin";
+    private static final String SCHEMA_LOCATION = "urn:schemas-jetbrains-com:teamcity-agent-plugin-v1-xml";
+
     private final AgentPluginDescriptor descriptor;
 
     public AgentPluginDescriptorGenerator(AgentPluginDescriptor descriptor) {
@@ -32,55 +36,78 @@ public class AgentPluginDescriptorGenerator {
     }
 
     public void writeTo(Writer writer) {
-        Map<String, String> attributes = new LinkedHashMap<>(2);
-        attributes.put("xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance");
-        attributes.put("xsi:noNamespaceSchemaLocation", "urn:schemas-jetbrains-com:teamcity-agent-plugin-v1-xml");
-        Node root = new Node(null, "teamcity-agent-plugin", attributes);
-        buildDeploymentNode(root, descriptor.getDeployment());
-        buildDependenciesNode(root, descriptor.getDependencies());
-        XmlUtil.serialize(root, writer);
+        try {
+            DescriptorWriter descriptorWriter = new DescriptorWriter(writer);
+            Deployment deployment = descriptor.getDeployment();
+            Dependencies dependencies = descriptor.getDependencies();
+            if (deployment == null && !dependencies.hasDependencies()) {
+                descriptorWriter.emptyDocument(ROOT_ELEMENT, SCHEMA_LOCATION);
+                return;
+            }
+            descriptorWriter.startDocument(ROOT_ELEMENT, SCHEMA_LOCATION);
+            writeDeployment(descriptorWriter, deployment);
+            writeDependencies(descriptorWriter, dependencies);
+            descriptorWriter.endDocument();
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure writing agent plugin descriptor", e);
+        }
     }
 
-    private void buildDeploymentNode(Node root, Deployment deployment) {
+    private void writeDeployment(DescriptorWriter writer, Deployment deployment) throws IOException {
         if (deployment != null) {
             if (deployment instanceof PluginDeployment) {
-                buildPluginDeploymentNode(root, (PluginDeployment) deployment);
+                writePluginDeployment(writer, (PluginDeployment) deployment);
             } else {
-                buildToolDeploymentNode(root, deployment);
+                writeToolDeployment(writer, deployment);
             }
         }
     }
 
-    private void buildPluginDeploymentNode(Node root, PluginDeployment deployment) {
+    private void writePluginDeployment(DescriptorWriter writer, PluginDeployment deployment) throws IOException {
         Map<String, Object> attributes = new LinkedHashMap<>();
         if (deployment.getUseSeparateClassloader() != null) {
             attributes.put("use-separate-classloader", deployment.getUseSeparateClassloader());
         }
-        Node deploymentNode = root.appendNode("plugin-deployment", attributes);
-        buildLayoutNode(deploymentNode, deployment.getExecutableFiles());
+        if (deployment.getExecutableFiles().hasFiles()) {
+            writer.startElement("plugin-deployment", attributes);
+            writeLayout(writer, deployment.getExecutableFiles());
+            writer.endElement();
+        } else {
+            writer.emptyElement("plugin-deployment", attributes);
+        }
     }
 
-    private void buildToolDeploymentNode(Node root, Deployment deployment) {
-        Node toolNode = root.appendNode("tool-deployment");
-        buildLayoutNode(toolNode, deployment.getExecutableFiles());
+    private void writeToolDeployment(DescriptorWriter writer, Deployment deployment) throws IOException {
+        if (deployment.getExecutableFiles().hasFiles()) {
+            writer.startElement("tool-deployment");
+            writeLayout(writer, deployment.getExecutableFiles());
+            writer.endElement();
+        } else {
+            writer.emptyElement("tool-deployment");
+        }
     }
 
-    private void buildLayoutNode(Node deploymentNode, ExecutableFiles executableFiles) {
-        if (executableFiles.hasFiles()) {
-            Node layoutNode = deploymentNode.appendNode("layout");
-            final Node executableFilesNode = layoutNode.appendNode("executable-files");
-            executableFiles.getIncludes().forEach(name ->
-                executableFilesNode.appendNode("include", Collections.singletonMap("name", name)));
+    private void writeLayout(DescriptorWriter writer, ExecutableFiles executableFiles) throws IOException {
+        writer.startElement("layout");
+        writer.startElement("executable-files");
+        for (String name : executableFiles.getIncludes()) {
+            writer.emptyElement("include", Collections.singletonMap("name", name));
         }
+        writer.endElement();
+        writer.endElement();
     }
 
-    private void buildDependenciesNode(Node root, Dependencies dependencies) {
+    private void writeDependencies(DescriptorWriter writer, Dependencies dependencies) throws IOException {
         if (dependencies.hasDependencies()) {
-            Node dependenciesNode = root.appendNode("dependencies");
-            dependencies.getPlugins().forEach(name ->
-                dependenciesNode.appendNode("plugin", Collections.singletonMap("name", name)));
-            dependencies.getTools().forEach(name ->
-                dependenciesNode.appendNode("tool", Collections.singletonMap("name", name)));
+            writer.startElement("dependencies");
+            for (String name : dependencies.getPlugins()) {
+                writer.emptyElement("plugin", Collections.singletonMap("name", name));
+            }
+            for (String name : dependencies.getTools()) {
+                writer.emptyElement("tool", Collections.singletonMap("name", name));
+            }
+            writer.endElement();
         }
     }
 }
@@ -15,9 +15,10 @@
  */
 package com.github.rodm.teamcity;
 
-import groovy.util.Node;
-import groovy.xml.XmlUtil;
+import com.github.rodm.teamcity.internal.DescriptorWriter;
+import org.gradle.api.GradleException;
 
+import java.io.IOException;
 import java.io.Writer;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -38,47 +39,52 @@ public class ServerPluginDescriptorGenerator {
     }
 
     public void writeTo(Writer writer) {
-        LinkedHashMap<String, String> attributes = new LinkedHashMap<>(2);
-        attributes.put("xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance");
-        attributes.put("xsi:noNamespaceSchemaLocation", "urn:schemas-jetbrains-com:teamcity-plugin-v1-xml");
-        Node root = new Node(null, "teamcity-plugin", attributes);
-        buildInfoNode(root);
-        buildRequirementsNode(root);
-        buildDeploymentNode(root);
-        buildParametersNode(root, descriptor.getParameters());
-        buildDependenciesNode(root, descriptor.getDependencies());
-        XmlUtil.serialize(root, writer);
+        try {
+            DescriptorWriter descriptorWriter = new DescriptorWriter(writer);
+            descriptorWriter.startDocument("teamcity-plugin", "urn:schemas-jetbrains-com:teamcity-plugin-v1-xml");
+            writeInfo(descriptorWriter);
+            writeRequirements(descriptorWriter);
+            writeDeployment(descriptorWriter);
+            writeParameters(descriptorWriter, descriptor.getParameters());
+            writeDependencies(descriptorWriter, descriptor.getDependencies());
+            descriptorWriter.endDocument();
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure writing server plugin descriptor", e);
+        }
     }
 
-    private void buildInfoNode(Node root) {
-        Node infoNode = root.appendNode("info");
-        infoNode.appendNode("name", descriptor.getName());
-        infoNode.appendNode("display-name", descriptor.getDisplayName());
-        infoNode.appendNode("version", descriptor.getVersion());
+    private void writeInfo(DescriptorWriter writer) throws IOException {
+        writer.startElement("info");
+        writer.element("name", descriptor.getName());
+        writer.element("display-name", descriptor.getDisplayName());
+        writer.element("version", descriptor.getVersion());
         if (descriptor.getDescription() != null) {
-            infoNode.appendNode("description", descriptor.getDescription());
+            writer.element("description", descriptor.getDescription());
         }
         if (descriptor.getDownloadUrl() != null) {
-            infoNode.appendNode("download-url", descriptor.getDownloadUrl());
+            writer.element("download-url", descriptor.getDownloadUrl());
         }
         if (descriptor.getEmail() != null) {
-            infoNode.appendNode("email", descriptor.getEmail());
+            writer.element("email", descriptor.getEmail());
         }
-        buildVendorNode(infoNode);
+        writeVendor(writer);
+        writer.endElement();
     }
 
-    private void buildVendorNode(Node info) {
-        Node vendorNode = info.appendNode("vendor");
-        vendorNode.appendNode("name", descriptor.getVendorName());
+    private void writeVendor(DescriptorWriter writer) throws IOException {
+        writer.startElement("vendor");
+        writer.element("name", descriptor.getVendorName());
         if (descriptor.getVendorUrl() != null) {
-            vendorNode.appendNode("url", descriptor.getVendorUrl());
+            writer.element("url", descriptor.getVendorUrl());
         }
         if (descriptor.getVendorLogo() != null) {
-            vendorNode.appendNode("logo", descriptor.getVendorLogo());
+            writer.element("logo", descriptor.getVendorLogo());
         }
+        writer.endElement();
     }
 
-    private void buildRequirementsNode(Node root) {
+    private void writeRequirements(DescriptorWriter writer) throws IOException {
         Map<String, String> attributes = new LinkedHashMap<>();
         if (descriptor.getMinimumBuild() != null) {
             attributes.put("min-build", descriptor.getMinimumBuild());
@@ -87,11 +93,11 @@ public class ServerPluginDescriptorGenerator {
             attributes.put("max-build", descriptor.getMaximumBuild());
         }
         if (attributes.size() > 0) {
-            root.appendNode("requirements", attributes);
+            writer.emptyElement("requirements", attributes);
         }
     }
 
-    private void buildDeploymentNode(Node root) {
+    private void writeDeployment(DescriptorWriter writer) throws IOException {
         Map<String, Boolean> attributes = new LinkedHashMap<>();
         if (descriptor.getUseSeparateClassloader() != null) {
             attributes.put("use-separate-classloader", descriptor.getUseSeparateClassloader());
@@ -103,25 +109,30 @@ public class ServerPluginDescriptorGenerator {
             attributes.put("node-responsibilities-aware", descriptor.getNodeResponsibilitiesAware());
         }
         if (attributes.size() > 0) {
-            root.appendNode("deployment", attributes);
+            writer.emptyElement("deployment", attributes);
         }
     }
 
-    private void buildParametersNode(Node root, Parameters parameters) {
+    private void writeParameters(DescriptorWriter writer, Parameters parameters) throws IOException {
         if (parameters.hasParameters()) {
-            final Node parametersNode = root.appendNode("parameters");
-            parameters.getParameters().forEach((name, value) ->
-                parametersNode.appendNode("parameter", Collections.singletonMap("name", name),value));
+            writer.startElement("parameters");
+            for (Map.Entry<String, String> parameter : parameters.getParameters().entrySet()) {
+                writer.element("parameter", Collections.singletonMap("name", parameter.getKey()), parameter.getValue());
+            }
+            writer.endElement();
         }
     }
 
-    private void buildDependenciesNode(Node root, Dependencies dependencies) {
+    private void writeDependencies(DescriptorWriter writer, Dependencies dependencies) throws IOException {
         if (version.equalOrGreaterThan(VERSION_9_0) && dependencies.hasDependencies()) {
-            final Node dependenciesNode = root.appendNode("dependencies");
-            dependencies.getPlugins().forEach(name ->
-                dependenciesNode.appendNode("plugin", Collections.singletonMap("name", name)));
-            descriptor.getDependencies().getTools().forEach(name ->
-                dependenciesNode.appendNode("tool", Collections.singletonMap("name", name)));
+            writer.startElement("dependencies");
+            for (String name : dependencies.getPlugins()) {
+                writer.emptyElement("plugin", Collections.singletonMap("name", name));
+            }
+            for (String name : dependencies.getTools()) {
+                writer.emptyElement("tool", Collections.singletonMap("name", name));
+            }
+            writer.endElement();
         }
     }
 }
@@ -17,15 +17,21 @@ package com.github.rodm.teamcity;
 
 import com.github.rodm.teamcity.internal.DefaultTeamCityPluginExtension;
 import com.github.rodm.teamcity.internal.FileCollectorAction;
+import com.github.rodm.teamcity.internal.LibraryIndexCache;
 import com.github.rodm.teamcity.internal.PluginDescriptorValidationAction;
 import com.github.rodm.teamcity.internal.PluginExecutableFilesValidationAction;
+import com.github.rodm.teamcity.internal.SchemaCache;
+import com.github.rodm.teamcity.internal.ValidationReportListener;
+import com.github.rodm.teamcity.internal.XmlReaderCache;
 import com.github.rodm.teamcity.tasks.AgentPlugin;
+import com.github.rodm.teamcity.tasks.AgentPluginDelta;
 import com.github.rodm.teamcity.tasks.GenerateAgentPluginDescriptor;
+import com.github.rodm.teamcity.tasks.PluginArchiveReport;
 import com.github.rodm.teamcity.tasks.ProcessDescriptor;
+import com.github.rodm.teamcity.tasks.ValidatePluginLibraries;
 import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
-import org.gradle.api.file.FileCopyDetails;
 import org.gradle.api.file.RegularFile;
 import org.gradle.api.plugins.PluginManager;
 import org.gradle.api.provider.Provider;
@@ -33,7 +39,7 @@ import org.gradle.api.tasks.TaskContainer;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.bundling.Zip;
 
-import java.util.LinkedHashSet;
+import java.util.HashSet;
 import java.util.Set;
 
 import static com.github.rodm.teamcity.TeamCityPlugin.AGENT_CONFIGURATION_NAME;
@@ -46,6 +52,7 @@ import static com.github.rodm.teamcity.TeamCityPlugin.SERVER_PLUGIN_ID;
 import static com.github.rodm.teamcity.TeamCityPlugin.TEAMCITY_GROUP;
 import static com.github.rodm.teamcity.TeamCityPlugin.configureJarTask;
 import static com.github.rodm.teamcity.TeamCityPlugin.configurePluginArchiveTask;
+import static com.github.rodm.teamcity.TeamCityPlugin.libraryCoordinates;
 import static com.github.rodm.teamcity.TeamCityVersion.VERSION_2024_03;
 import static org.gradle.api.plugins.JavaPlugin.JAR_TASK_NAME;
 import static org.gradle.api.plugins.JavaPlugin.RUNTIME_CLASSPATH_CONFIGURATION_NAME;
@@ -61,6 +68,14 @@ public class TeamCityAgentPlugin implements Plugin<Project> {
     public static final String PROCESS_AGENT_DESCRIPTOR_TASK_NAME = "processAgentDescriptor";
     public static final String GENERATE_AGENT_DESCRIPTOR_TASK_NAME = "generateAgentDescriptor";
     public static final String AGENT_PLUGIN_TASK_NAME = "agentPlugin";
+    public static final String VALIDATE_AGENT_LIBRARIES_TASK_NAME = "validateAgentLibraries";
+    public static final String AGENT_PLUGIN_REPORT_TASK_NAME = "agentPluginReport";
+    public static final String AGENT_PLUGIN_DELTA_TASK_NAME = "agentPluginDelta";
+
+    private static final String AGENT_LIBRARIES_REPORT = "teamcity/agent-libraries-validation.txt";
+    private static final String AGENT_PLUGIN_SIZE_REPORT = "teamcity/agent-plugin-size.json";
+    private static final String AGENT_PLUGIN_MANIFEST = "teamcity/agent-plugin-manifest.txt";
+    private static final String AGENT_PLUGIN_DELTA_REPORT = "teamcity/agent-plugin-delta.txt";
 
     public void apply(final Project project) {
         PluginManager plugins = project.getPluginManager();
@@ -107,6 +122,22 @@ public class TeamCityAgentPlugin implements Plugin<Project> {
                 task.getDestination().set(descriptorFile);
             });
 
+        final Provider<LibraryIndexCache> libraryIndexCache = LibraryIndexCache.register(project.getGradle());
+        final TaskProvider<ValidatePluginLibraries> validateLibraries =
+            tasks.register(VALIDATE_AGENT_LIBRARIES_TASK_NAME, ValidatePluginLibraries.class, task -> {
+                task.getLibraries().from(project.getConfigurations().getByName(AGENT_CONFIGURATION_NAME));
+                plugins.withPlugin(JAVA_PLUGIN_ID, plugin -> {
+                    task.getLibraries().from(tasks.named(JAR_TASK_NAME));
+                    task.getLibraries().from(project.getConfigurations().getByName(RUNTIME_CLASSPATH_CONFIGURATION_NAME));
+                });
+                task.getMode().set(((DefaultTeamCityPluginExtension) extension).getValidateLibrariesProperty());
+                task.getLibraryIndexCache().set(libraryIndexCache);
+                task.usesService(libraryIndexCache);
+                task.getReport().set(project.getLayout().getBuildDirectory().file(AGENT_LIBRARIES_REPORT));
+            });
+        ValidationReportListener.register(project, VALIDATE_AGENT_LIBRARIES_TASK_NAME,
+            project.getLayout().getBuildDirectory().file(AGENT_LIBRARIES_REPORT));
+
         final TaskProvider<AgentPlugin> packagePlugin =
             tasks.register(AGENT_PLUGIN_TASK_NAME, AgentPlugin.class, task -> {
             task.setDescription(TEAMCITY_GROUP);
@@ -117,15 +148,35 @@ public class TeamCityAgentPlugin implements Plugin<Project> {
                 task.getLib().from(project.getConfigurations().getByName(RUNTIME_CLASSPATH_CONFIGURATION_NAME));
             });
             task.with(agent.getFiles());
-            task.dependsOn(processDescriptor, generateDescriptor);
+            task.dependsOn(processDescriptor, generateDescriptor, validateLibraries);
+        });
+
+        final TaskProvider<PluginArchiveReport> archiveReport =
+            tasks.register(AGENT_PLUGIN_REPORT_TASK_NAME, PluginArchiveReport.class, task -> {
+                task.getArchive().set(packagePlugin.flatMap(Zip::getArchiveFile));
+                task.getCoordinates().putAll(libraryCoordinates(project.getConfigurations().getByName(AGENT_CONFIGURATION_NAME)));
+                plugins.withPlugin(JAVA_PLUGIN_ID, plugin ->
+                    task.getCoordinates().putAll(libraryCoordinates(project.getConfigurations().getByName(RUNTIME_CLASSPATH_CONFIGURATION_NAME))));
+                task.getReport().set(project.getLayout().getBuildDirectory().file(AGENT_PLUGIN_SIZE_REPORT));
+            });
+        packagePlugin.configure(task -> task.finalizedBy(archiveReport));
+
+        tasks.register(AGENT_PLUGIN_DELTA_TASK_NAME, AgentPluginDelta.class, task -> {
+            task.getArchive().set(packagePlugin.flatMap(Zip::getArchiveFile));
+            task.getManifest().set(project.getLayout().getBuildDirectory().file(AGENT_PLUGIN_MANIFEST));
+            task.getReport().set(project.getLayout().getBuildDirectory().file(AGENT_PLUGIN_DELTA_REPORT));
         });
 
+        final Provider<SchemaCache> schemaCache = SchemaCache.register(project.getGradle());
+        final Provider<XmlReaderCache> xmlReaderCache = XmlReaderCache.register(project.getGradle());
         tasks.withType(AgentPlugin.class).configureEach(task -> {
             String schemaPath = getSchemaPath(extension.getVersion(), extension.getAllowSnapshotVersions());
-            task.doLast(new PluginDescriptorValidationAction(schemaPath));
-            Set<FileCopyDetails> files = new LinkedHashSet<>();
-            task.filesMatching("**/*", new FileCollectorAction(files));
-            task.doLast(new PluginExecutableFilesValidationAction(files));
+            task.usesService(schemaCache);
+            task.usesService(xmlReaderCache);
+            Set<String> paths = new HashSet<>();
+            task.filesMatching("**/*", new FileCollectorAction(paths));
+            task.doLast(new PluginDescriptorValidationAction(schemaPath, schemaCache, xmlReaderCache,
+                new PluginExecutableFilesValidationAction(paths, xmlReaderCache)));
         });
 
         plugins.withPlugin(SERVER_PLUGIN_ID, serverPlugin ->
@@ -16,8 +16,11 @@
 package com.github.rodm.teamcity;
 
 import com.github.rodm.teamcity.internal.DefaultTeamCityEnvironments;
+import com.github.rodm.teamcity.internal.DeployedPluginsManifest;
 import com.github.rodm.teamcity.internal.DisablePluginAction;
 import com.github.rodm.teamcity.internal.EnablePluginAction;
+import com.github.rodm.teamcity.internal.ExcludeUnchangedPluginsAction;
+import com.github.rodm.teamcity.internal.UpdateDeployedPluginsAction;
 import com.github.rodm.teamcity.tasks.Deploy;
 import com.github.rodm.teamcity.tasks.ServerPlugin;
 import com.github.rodm.teamcity.tasks.Undeploy;
@@ -68,7 +71,10 @@ public class TeamCityBaseEnvironmentsPlugin implements Plugin<Project> {
                 final File dataDir = project.file(environment.getDataDirProperty().get());
                 Set<File> plugins = ((FileCollection) environment.getPlugins()).getFiles();
                 List<String> disabledPlugins = new ArrayList<>();
-                task.doFirst(new DisablePluginAction(project.getLogger(), dataDir, plugins, disabledPlugins));
+                DeployedPluginsManifest manifest = new DeployedPluginsManifest(dataDir);
+                task.doFirst(new DisablePluginAction(project.getLogger(), dataDir, plugins, disabledPlugins, manifest));
+                task.eachFile(new ExcludeUnchangedPluginsAction(manifest));
+                task.doLast(new UpdateDeployedPluginsAction(manifest, plugins, true));
                 task.doLast(new EnablePluginAction(project.getLogger(), dataDir, plugins, disabledPlugins));
             }
         });
@@ -82,6 +88,7 @@ public class TeamCityBaseEnvironmentsPlugin implements Plugin<Project> {
                 final File dataDir = project.file(environment.getDataDirProperty().get());
                 Set<File> plugins = ((FileCollection) environment.getPlugins()).getFiles();
                 task.doFirst(new DisablePluginAction(project.getLogger(), dataDir, plugins, new ArrayList<>()));
+                task.doLast(new UpdateDeployedPluginsAction(new DeployedPluginsManifest(dataDir), plugins, false));
             }
         });
 
@@ -55,6 +55,9 @@ public class TeamCityBasePlugin implements Plugin<Project> {
                 extension.getVersionProperty().set(rootExtension.getVersionProperty());
                 extension.getAllowSnapshotVersionsProperty().set(rootExtension.getAllowSnapshotVersionsProperty());
                 extension.getValidateBeanDefinitionProperty().set(rootExtension.getValidateBeanDefinitionProperty());
+                extension.getStreamBeanDefinitionValidationProperty().set(rootExtension.getStreamBeanDefinitionValidationProperty());
+                extension.getAnalyzeBeanClassesProperty().set(rootExtension.getAnalyzeBeanClassesProperty());
+                extension.getValidateLibrariesProperty().set(rootExtension.getValidateLibrariesProperty());
                 extension.getDefaultRepositoriesProperty().set(rootExtension.getDefaultRepositoriesProperty());
             }
         }
@@ -15,22 +15,27 @@
  */
 package com.github.rodm.teamcity;
 
-import com.github.rodm.teamcity.internal.ClassCollectorAction;
-import com.github.rodm.teamcity.internal.PluginDefinition;
-import com.github.rodm.teamcity.internal.PluginDefinitionCollectorAction;
-import com.github.rodm.teamcity.internal.PluginDefinitionValidationAction;
+import com.github.rodm.teamcity.internal.DefaultTeamCityPluginExtension;
+import com.github.rodm.teamcity.internal.ValidationReportListener;
+import com.github.rodm.teamcity.internal.XmlReaderCache;
+import com.github.rodm.teamcity.tasks.ValidatePluginDefinition;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.ConfigurationContainer;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFile;
 import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.bundling.Jar;
 import org.gradle.api.tasks.bundling.Zip;
 
-import java.util.ArrayList;
-import java.util.LinkedHashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Map;
 
 public class TeamCityPlugin implements Plugin<Project> {
 
@@ -53,9 +58,11 @@ public class TeamCityPlugin implements Plugin<Project> {
 
     public static final String GRADLE_OFFLINE = "gradle-offline";
 
+    public static final String VALIDATE_PLUGIN_DEFINITION_TASK_NAME = "validatePluginDefinition";
+
     private static final String JETBRAINS_MAVEN_REPOSITORY = "https://download.jetbrains.com/teamcity-repository";
 
-    private static final String CLASSES_PATTERN = "**/*.class";
+    private static final String PLUGIN_DEFINITION_REPORT = "teamcity/plugin-definition-validation.txt";
 
     public void apply(Project project) {
         project.getPluginManager().apply(TeamCityBasePlugin.class);
@@ -108,16 +115,33 @@ public class TeamCityPlugin implements Plugin<Project> {
     }
 
     public static void configureJarTask(final Project project, final TeamCityPluginExtension extension, final String pattern) {
-        project.getPluginManager().withPlugin(JAVA_PLUGIN_ID, plugin ->
-            project.getTasks().named(JavaPlugin.JAR_TASK_NAME, Jar.class).configure(task -> {
-            task.getInputs().property(GRADLE_OFFLINE, project.getGradle().getStartParameter().isOffline());
-            ValidationMode mode = extension.getValidateBeanDefinition();
-            List<PluginDefinition> pluginDefinitions = new ArrayList<>();
-            Set<String> classes = new LinkedHashSet<>();
-            task.filesMatching(pattern, new PluginDefinitionCollectorAction(pluginDefinitions));
-            task.filesMatching(CLASSES_PATTERN, new ClassCollectorAction(classes));
-            task.doLast(new PluginDefinitionValidationAction(mode, pluginDefinitions, classes));
-        }));
+        project.getPluginManager().withPlugin(JAVA_PLUGIN_ID, plugin -> {
+            final DefaultTeamCityPluginExtension defaultExtension = (DefaultTeamCityPluginExtension) extension;
+            final ConfigurationContainer configurations = project.getConfigurations();
+            final FileCollection classpath = project.files(configurations.getByName(PROVIDED_CONFIGURATION_NAME),
+                configurations.getByName(JavaPlugin.RUNTIME_CLASSPATH_CONFIGURATION_NAME));
+            final TaskProvider<Jar> jar = project.getTasks().named(JavaPlugin.JAR_TASK_NAME, Jar.class);
+            final Provider<RegularFile> jarFile = jar.flatMap(Jar::getArchiveFile);
+            final Provider<XmlReaderCache> xmlReaderCache = XmlReaderCache.register(project.getGradle());
+            final TaskProvider<ValidatePluginDefinition> validateDefinition =
+                project.getTasks().register(VALIDATE_PLUGIN_DEFINITION_TASK_NAME, ValidatePluginDefinition.class, task -> {
+                    task.getInputs().property(GRADLE_OFFLINE, project.getGradle().getStartParameter().isOffline());
+                    task.getJar().set(jarFile);
+                    task.getDefinitions().from(project.zipTree(jarFile).matching(patterns -> patterns.include(pattern)));
+                    task.getMode().set(defaultExtension.getValidateBeanDefinitionProperty());
+                    task.getStreaming().set(defaultExtension.getStreamBeanDefinitionValidationProperty());
+                    task.getAnalyzeClasses().set(defaultExtension.getAnalyzeBeanClassesProperty());
+                    task.getClasspath().from(defaultExtension.getAnalyzeBeanClassesProperty()
+                        .map(analyze -> analyze ? classpath : project.files()));
+                    task.getXmlReaderCache().set(xmlReaderCache);
+                    task.usesService(xmlReaderCache);
+                    task.getReport().set(project.getLayout().getBuildDirectory().file(PLUGIN_DEFINITION_REPORT));
+                    task.dependsOn(jar);
+                });
+            ValidationReportListener.register(project, VALIDATE_PLUGIN_DEFINITION_TASK_NAME,
+                project.getLayout().getBuildDirectory().file(PLUGIN_DEFINITION_REPORT));
+            jar.configure(task -> task.finalizedBy(validateDefinition));
+        });
     }
 
     public static void configurePluginArchiveTask(Zip task, String archiveName) {
@@ -126,4 +150,24 @@ public class TeamCityPlugin implements Plugin<Project> {
             task.getArchiveFileName().set(name);
         }
     }
+
+    /**
+     * Returns the dependency coordinates of the resolved artifacts of the configuration, by file name.
+     * Project dependencies use the project's display name.
+     */
+    public static Provider<Map<String, String>> libraryCoordinates(Configuration configuration) {
+        return configuration.getIncoming().getArtifacts().getResolvedArtifacts().map(artifacts -> {
+            Map<String, String> coordinates = new HashMap<>();
+            for (ResolvedArtifactResult artifact : artifacts) {
+                ComponentIdentifier id = artifact.getId().getComponentIdentifier();
+                if (id instanceof ModuleComponentIdentifier) {
+                    ModuleComponentIdentifier module = (ModuleComponentIdentifier) id;
+                    coordinates.put(artifact.getFile().getName(), module.getGroup() + ":" + module.getModule() + ":" + module.getVersion());
+                } else {
+                    coordinates.put(artifact.getFile().getName(), id.getDisplayName());
+                }
+            }
+            return coordinates;
+        });
+    }
 }
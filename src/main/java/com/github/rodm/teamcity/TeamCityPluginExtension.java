@@ -54,4 +54,30 @@ public interface TeamCityPluginExtension extends ExtensionAware {
     void setValidateBeanDefinition(ValidationMode mode);
     void setValidateBeanDefinition(String mode);
     ValidationMode getValidateBeanDefinition();
+
+    /**
+     * Read plugin bean definition files with a streaming parser while the jar is built.
+     *
+     * @param streaming Use the streaming parser
+     */
+    void setStreamBeanDefinitionValidation(boolean streaming);
+    boolean getStreamBeanDefinitionValidation();
+
+    /**
+     * Check the superclasses and constructor parameter types of the bean classes are available
+     * from the plugin jar, the provided configuration or the runtime classpath.
+     *
+     * @param analyze Analyze the bean classes
+     */
+    void setAnalyzeBeanClasses(boolean analyze);
+    boolean getAnalyzeBeanClasses();
+
+    /**
+     * Set the validation mode for checking the plugin libraries for duplicate classes and split packages
+     *
+     * @param mode The validation mode
+     */
+    void setValidateLibraries(ValidationMode mode);
+    void setValidateLibraries(String mode);
+    ValidationMode getValidateLibraries();
 }
@@ -18,13 +18,20 @@ package com.github.rodm.teamcity;
 import com.github.rodm.teamcity.internal.DefaultPublishConfiguration;
 import com.github.rodm.teamcity.internal.DefaultSignConfiguration;
 import com.github.rodm.teamcity.internal.DefaultTeamCityPluginExtension;
+import com.github.rodm.teamcity.internal.LibraryIndexCache;
 import com.github.rodm.teamcity.internal.PluginDescriptorContentsValidationAction;
 import com.github.rodm.teamcity.internal.PluginDescriptorValidationAction;
+import com.github.rodm.teamcity.internal.SchemaCache;
+import com.github.rodm.teamcity.internal.SharedLibrariesReportAction;
+import com.github.rodm.teamcity.internal.ValidationReportListener;
+import com.github.rodm.teamcity.internal.XmlReaderCache;
 import com.github.rodm.teamcity.tasks.GenerateServerPluginDescriptor;
+import com.github.rodm.teamcity.tasks.PluginArchiveReport;
 import com.github.rodm.teamcity.tasks.ProcessDescriptor;
 import com.github.rodm.teamcity.tasks.PublishPlugin;
 import com.github.rodm.teamcity.tasks.ServerPlugin;
 import com.github.rodm.teamcity.tasks.SignPlugin;
+import com.github.rodm.teamcity.tasks.ValidatePluginLibraries;
 import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
@@ -51,6 +58,7 @@ import static com.github.rodm.teamcity.TeamCityPlugin.SERVER_CONFIGURATION_NAME;
 import static com.github.rodm.teamcity.TeamCityPlugin.TEAMCITY_GROUP;
 import static com.github.rodm.teamcity.TeamCityPlugin.configureJarTask;
 import static com.github.rodm.teamcity.TeamCityPlugin.configurePluginArchiveTask;
+import static com.github.rodm.teamcity.TeamCityPlugin.libraryCoordinates;
 import static com.github.rodm.teamcity.TeamCityVersion.VERSION_2018_2;
 import static com.github.rodm.teamcity.TeamCityVersion.VERSION_2020_1;
 import static com.github.rodm.teamcity.TeamCityVersion.VERSION_9_0;
@@ -70,9 +78,13 @@ public class TeamCityServerPlugin implements Plugin<Project> {
     public static final String SERVER_PLUGIN_TASK_NAME = "serverPlugin";
     public static final String PUBLISH_PLUGIN_TASK_NAME = "publishPlugin";
     public static final String SIGN_PLUGIN_TASK_NAME = "signPlugin";
+    public static final String VALIDATE_SERVER_LIBRARIES_TASK_NAME = "validateServerLibraries";
+    public static final String SERVER_PLUGIN_REPORT_TASK_NAME = "serverPluginReport";
 
     private static final String MARKETPLACE_CONFIGURATION_NAME = "marketplace";
     private static final String BUILD_SERVER_RESOURCES_PATH = "buildServerResources";
+    private static final String SERVER_LIBRARIES_REPORT = "teamcity/server-libraries-validation.txt";
+    private static final String SERVER_PLUGIN_SIZE_REPORT = "teamcity/server-plugin-size.json";
 
     public void apply(final Project project) {
         PluginManager plugins = project.getPluginManager();
@@ -145,6 +157,21 @@ public class TeamCityServerPlugin implements Plugin<Project> {
             task.getDestination().set(descriptorFile);
         });
 
+        final Provider<LibraryIndexCache> libraryIndexCache = LibraryIndexCache.register(project.getGradle());
+        final TaskProvider<ValidatePluginLibraries> validateLibraries = tasks.register(VALIDATE_SERVER_LIBRARIES_TASK_NAME, ValidatePluginLibraries.class, task -> {
+            task.getLibraries().from(project.getConfigurations().getByName(SERVER_CONFIGURATION_NAME));
+            plugins.withPlugin(JAVA_PLUGIN_ID, plugin -> {
+                task.getLibraries().from(tasks.named(JAR_TASK_NAME));
+                task.getLibraries().from(project.getConfigurations().getByName(RUNTIME_CLASSPATH_CONFIGURATION_NAME));
+            });
+            task.getMode().set(((DefaultTeamCityPluginExtension) extension).getValidateLibrariesProperty());
+            task.getLibraryIndexCache().set(libraryIndexCache);
+            task.usesService(libraryIndexCache);
+            task.getReport().set(project.getLayout().getBuildDirectory().file(SERVER_LIBRARIES_REPORT));
+        });
+        ValidationReportListener.register(project, VALIDATE_SERVER_LIBRARIES_TASK_NAME,
+            project.getLayout().getBuildDirectory().file(SERVER_LIBRARIES_REPORT));
+
         final TaskProvider<ServerPlugin> packagePlugin = tasks.register(SERVER_PLUGIN_TASK_NAME, ServerPlugin.class, task -> {
             task.setGroup(TEAMCITY_GROUP);
             task.getDescriptor().set(descriptorFile);
@@ -159,13 +186,30 @@ public class TeamCityServerPlugin implements Plugin<Project> {
                 task.getAgent().from((project.getConfigurations().getByName(AGENT_CONFIGURATION_NAME)));
             }
             task.with(server.getFiles());
-            task.dependsOn(processDescriptor, generateDescriptor);
+            task.dependsOn(processDescriptor, generateDescriptor, validateLibraries);
+        });
+
+        final TaskProvider<PluginArchiveReport> archiveReport = tasks.register(SERVER_PLUGIN_REPORT_TASK_NAME, PluginArchiveReport.class, task -> {
+            task.getArchive().set(packagePlugin.flatMap(Zip::getArchiveFile));
+            task.getCoordinates().putAll(libraryCoordinates(project.getConfigurations().getByName(SERVER_CONFIGURATION_NAME)));
+            plugins.withPlugin(JAVA_PLUGIN_ID, plugin ->
+                task.getCoordinates().putAll(libraryCoordinates(project.getConfigurations().getByName(RUNTIME_CLASSPATH_CONFIGURATION_NAME))));
+            if (!plugins.hasPlugin(AGENT_PLUGIN_ID)) {
+                task.getCoordinates().putAll(libraryCoordinates(project.getConfigurations().getByName(AGENT_CONFIGURATION_NAME)));
+            }
+            task.getReport().set(project.getLayout().getBuildDirectory().file(SERVER_PLUGIN_SIZE_REPORT));
         });
+        packagePlugin.configure(task -> task.finalizedBy(archiveReport));
 
+        final Provider<SchemaCache> schemaCache = SchemaCache.register(project.getGradle());
+        final Provider<XmlReaderCache> xmlReaderCache = XmlReaderCache.register(project.getGradle());
         tasks.withType(ServerPlugin.class).configureEach(task -> {
             String schemaPath = getSchemaPath(extension.getVersion(), extension.getAllowSnapshotVersions());
-            task.doLast(new PluginDescriptorValidationAction(schemaPath));
-            task.doLast(new PluginDescriptorContentsValidationAction());
+            task.usesService(schemaCache);
+            task.usesService(xmlReaderCache);
+            task.doLast(new PluginDescriptorValidationAction(schemaPath, schemaCache, xmlReaderCache,
+                new PluginDescriptorContentsValidationAction(xmlReaderCache)));
+            task.doLast(new SharedLibrariesReportAction());
         });
 
         tasks.named(ASSEMBLE_TASK_NAME, task -> task.dependsOn(packagePlugin));
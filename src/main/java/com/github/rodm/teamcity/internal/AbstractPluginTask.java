@@ -15,14 +15,25 @@
  */
 package com.github.rodm.teamcity.internal;
 
+import org.gradle.api.GradleException;
 import org.gradle.api.Transformer;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.internal.file.copy.CopyActionProcessingStream;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.WorkResult;
 import org.gradle.api.tasks.bundling.Zip;
 import org.gradle.work.DisableCachingByDefault;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
 import static com.github.rodm.teamcity.TeamCityPlugin.PLUGIN_DESCRIPTOR_FILENAME;
 
 @DisableCachingByDefault(because = "Not worth caching")
@@ -35,7 +46,118 @@ public abstract class AbstractPluginTask extends Zip {
         }
     };
 
+    private boolean reproducibleFileOrderSet;
+    private boolean preserveFileTimestampsSet;
+
+    protected AbstractPluginTask() {
+        getParallelCompression().convention(false);
+        getStoreArchives().convention(false);
+        getIncremental().convention(false);
+    }
+
     @InputFile
     @PathSensitive(PathSensitivity.NONE)
     public abstract RegularFileProperty getDescriptor();
+
+    /**
+     * Compresses the archive entries concurrently.
+     */
+    @Input
+    public abstract Property<Boolean> getParallelCompression();
+
+    /**
+     * Stores jar and zip files in the archive without compressing them again, other files are
+     * compressed using the entry compression of the task.
+     */
+    @Input
+    public abstract Property<Boolean> getStoreArchives();
+
+    /**
+     * Updates the existing archive, copying the entries with unchanged contents without compressing them again.
+     */
+    @Internal
+    public abstract Property<Boolean> getIncremental();
+
+    /**
+     * Returns whether the archive entries are in a reproducible order, by default the order is reproducible
+     * when parallel compression, storing archives or incremental updates are enabled.
+     */
+    @Input
+    @Override
+    public boolean isReproducibleFileOrder() {
+        if (!reproducibleFileOrderSet && isArchiveModeEnabled()) {
+            return true;
+        }
+        return super.isReproducibleFileOrder();
+    }
+
+    @Override
+    public void setReproducibleFileOrder(boolean reproducibleFileOrder) {
+        super.setReproducibleFileOrder(reproducibleFileOrder);
+        reproducibleFileOrderSet = true;
+    }
+
+    /**
+     * Returns whether the file timestamps are preserved in the archive, by default the timestamps are not
+     * preserved when parallel compression, storing archives or incremental updates are enabled.
+     */
+    @Input
+    @Override
+    public boolean isPreserveFileTimestamps() {
+        if (!preserveFileTimestampsSet && isArchiveModeEnabled()) {
+            return false;
+        }
+        return super.isPreserveFileTimestamps();
+    }
+
+    @Override
+    public void setPreserveFileTimestamps(boolean preserveFileTimestamps) {
+        super.setPreserveFileTimestamps(preserveFileTimestamps);
+        preserveFileTimestampsSet = true;
+    }
+
+    private boolean isArchiveModeEnabled() {
+        return getParallelCompression().get() || getStoreArchives().get() || getIncremental().get();
+    }
+
+    @Override
+    protected CopyAction createCopyAction() {
+        boolean parallel = getParallelCompression().get();
+        boolean storeArchives = getStoreArchives().get();
+        boolean incremental = getIncremental().get();
+        String charset = getMetadataCharset();
+        // archives requiring Zip64 or a metadata charset other than UTF-8 are created by the default action
+        if ((parallel || storeArchives || incremental) && !isZip64() && (charset == null || "UTF-8".equalsIgnoreCase(charset))) {
+            int threads = parallel ? Runtime.getRuntime().availableProcessors() : 1;
+            return new ParallelZipCopyAction(getArchiveFile().get().getAsFile(), getEntryCompression(), isPreserveFileTimestamps(),
+                storeArchives, incremental, threads);
+        }
+        return new ReplaceArchiveAction(getArchiveFile().get().getAsFile(), super.createCopyAction());
+    }
+
+    /**
+     * Deletes the existing archive before the archive is written, so the archive is replaced instead of
+     * rewritten, and a hard link to the archive, for example a deployed plugin, keeps the previous contents.
+     */
+    private static class ReplaceArchiveAction implements CopyAction {
+
+        private final File archive;
+        private final CopyAction delegate;
+
+        ReplaceArchiveAction(File archive, CopyAction delegate) {
+            this.archive = archive;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public WorkResult execute(CopyActionProcessingStream stream) {
+            try {
+                Files.deleteIfExists(archive.toPath());
+            }
+            catch (IOException e) {
+                throw new GradleException(String.format("Could not delete ZIP '%s'.", archive), e);
+            }
+            return delegate.execute(stream);
+        }
+    }
 }
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.github.rodm.teamcity.internal.PluginLibrariesValidationAction.libraryBaseName;
+
+/**
+ * The differences between the manifests of two versions of an archive. An entry moved to a new path with
+ * the same contents is a rename, and a library in the {@code lib} directory replaced by a library with
+ * the same name but a different version is an update.
+ */
+public class ArchiveDelta {
+
+    private static final String LIBRARY_PREFIX = "lib/";
+    private static final String JAR_SUFFIX = ".jar";
+
+    public enum ChangeType {
+        ADDED("A"), REMOVED("D"), MODIFIED("M"), RENAMED("R"), UPDATED("U");
+
+        private final String code;
+
+        ChangeType(String code) {
+            this.code = code;
+        }
+
+        public String getCode() {
+            return code;
+        }
+    }
+
+    private final List<Change> changes;
+    private final int unchanged;
+
+    private ArchiveDelta(List<Change> changes, int unchanged) {
+        this.changes = changes;
+        this.unchanged = unchanged;
+    }
+
+    public static ArchiveDelta compare(ArchiveManifest previous, ArchiveManifest current) {
+        Map<String, ArchiveManifest.Entry> previousEntries = previous.getEntries();
+        Map<String, ArchiveManifest.Entry> currentEntries = current.getEntries();
+
+        // the previous entries no longer present, by hash and by library name, that can match a new entry
+        Map<String, ArchiveManifest.Entry> missing = new LinkedHashMap<>();
+        Map<String, List<String>> missingByHash = new HashMap<>();
+        Map<String, List<String>> missingByLibrary = new HashMap<>();
+        for (ArchiveManifest.Entry entry : previousEntries.values()) {
+            if (!currentEntries.containsKey(entry.getPath())) {
+                missing.put(entry.getPath(), entry);
+                missingByHash.computeIfAbsent(entry.getHash(), hash -> new ArrayList<>()).add(entry.getPath());
+                if (isLibrary(entry.getPath())) {
+                    missingByLibrary.computeIfAbsent(libraryBaseName(entry.getPath()), name -> new ArrayList<>()).add(entry.getPath());
+                }
+            }
+        }
+
+        List<Change> changes = new ArrayList<>();
+        List<ArchiveManifest.Entry> added = new ArrayList<>();
+        int unchanged = 0;
+        for (ArchiveManifest.Entry entry : currentEntries.values()) {
+            ArchiveManifest.Entry previousEntry = previousEntries.get(entry.getPath());
+            if (previousEntry == null) {
+                String previousPath = take(missingByHash.get(entry.getHash()), missing);
+                if (previousPath != null) {
+                    changes.add(new Change(ChangeType.RENAMED, entry.getPath(), previousPath, entry.getSize()));
+                } else {
+                    added.add(entry);
+                }
+            } else if (previousEntry.getHash().equals(entry.getHash())) {
+                unchanged++;
+            } else {
+                changes.add(new Change(ChangeType.MODIFIED, entry.getPath(), null, entry.getSize()));
+            }
+        }
+        // renames are matched first so a library is only an update when its contents changed
+        for (ArchiveManifest.Entry entry : added) {
+            String previousPath = isLibrary(entry.getPath())
+                ? take(missingByLibrary.get(libraryBaseName(entry.getPath())), missing)
+                : null;
+            if (previousPath != null) {
+                changes.add(new Change(ChangeType.UPDATED, entry.getPath(), previousPath, entry.getSize()));
+            } else {
+                changes.add(new Change(ChangeType.ADDED, entry.getPath(), null, entry.getSize()));
+            }
+        }
+        for (ArchiveManifest.Entry entry : missing.values()) {
+            changes.add(new Change(ChangeType.REMOVED, entry.getPath(), null, 0));
+        }
+        changes.sort(Comparator.comparing(Change::getPath));
+        return new ArchiveDelta(changes, unchanged);
+    }
+
+    private static String take(List<String> candidates, Map<String, ArchiveManifest.Entry> missing) {
+        if (candidates != null) {
+            for (String candidate : candidates) {
+                if (missing.remove(candidate) != null) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    static boolean isLibrary(String path) {
+        return path.startsWith(LIBRARY_PREFIX) && path.endsWith(JAR_SUFFIX) && path.indexOf('/', LIBRARY_PREFIX.length()) < 0;
+    }
+
+    /**
+     * @return the changes, ordered by path
+     */
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * @return the changes to the libraries in the {@code lib} directory
+     */
+    public List<Change> getLibraryChanges() {
+        List<Change> result = new ArrayList<>();
+        for (Change change : changes) {
+            if (isLibrary(change.getPath()) || (change.getPreviousPath() != null && isLibrary(change.getPreviousPath()))) {
+                result.add(change);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of bytes of the new and changed entries
+     */
+    public long getChangedSize() {
+        long size = 0;
+        for (Change change : changes) {
+            if (change.getType() != ChangeType.RENAMED) {
+                size += change.getSize();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the previous paths of the libraries that were only renamed, so the previous names can be kept.
+     *
+     * @return the previous path of each renamed library, by the new path
+     */
+    public Map<String, String> getStableLibraryNames() {
+        Map<String, String> names = new TreeMap<>();
+        for (Change change : changes) {
+            if (change.getType() == ChangeType.RENAMED && isLibrary(change.getPath()) && isLibrary(change.getPreviousPath())) {
+                names.put(change.getPath(), change.getPreviousPath());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return a line for each change with the type code and the path, and the previous path for renames and updates
+     */
+    public List<String> toLines() {
+        List<String> lines = new ArrayList<>(changes.size());
+        for (Change change : changes) {
+            if (change.getPreviousPath() != null) {
+                lines.add(change.getType().getCode() + " " + change.getPreviousPath() + " -> " + change.getPath());
+            } else {
+                lines.add(change.getType().getCode() + " " + change.getPath());
+            }
+        }
+        return lines;
+    }
+
+    public static class Change {
+
+        private final ChangeType type;
+        private final String path;
+        private final String previousPath;
+        private final long size;
+
+        Change(ChangeType type, String path, String previousPath, long size) {
+            this.type = type;
+            this.path = path;
+            this.previousPath = previousPath;
+            this.size = size;
+        }
+
+        public ChangeType getType() {
+            return type;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getPreviousPath() {
+            return previousPath;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
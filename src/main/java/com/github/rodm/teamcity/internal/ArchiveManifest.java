@@ -0,0 +1,135 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.gradle.api.GradleException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The SHA-256 hash and size of each file entry of an archive.
+ */
+public class ArchiveManifest {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Map<String, Entry> entries;
+
+    private ArchiveManifest(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    public static ArchiveManifest empty() {
+        return new ArchiveManifest(Collections.emptyMap());
+    }
+
+    public static ArchiveManifest read(File archive) throws IOException {
+        Map<String, Entry> entries = new TreeMap<>();
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+            while (zipEntries.hasMoreElements()) {
+                ZipEntry entry = zipEntries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    entries.put(entry.getName(), new Entry(entry.getName(), toHex(hash(in)), entry.getSize()));
+                }
+            }
+        }
+        return new ArchiveManifest(Collections.unmodifiableMap(entries));
+    }
+
+    /**
+     * @return the entries, by path
+     */
+    public Map<String, Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return a line for each entry with the hash, the size and the path, ordered by path
+     */
+    public List<String> toLines() {
+        List<String> lines = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            lines.add(entry.getHash() + " " + entry.getSize() + " " + entry.getPath());
+        }
+        return lines;
+    }
+
+    public static byte[] hash(InputStream in) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new GradleException("SHA-256 is not available", e);
+        }
+        byte[] buffer = new byte[65536];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, count);
+        }
+        return digest.digest();
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    public static class Entry {
+
+        private final String path;
+        private final String hash;
+        private final long size;
+
+        Entry(String path, String hash, long size) {
+            this.path = path;
+            this.hash = hash;
+            this.size = size;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
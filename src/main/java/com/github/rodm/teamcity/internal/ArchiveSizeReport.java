@@ -0,0 +1,250 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The compressed and uncompressed sizes of a plugin archive, by directory and by library.
+ */
+public class ArchiveSizeReport {
+
+    private static final String JAR_SUFFIX = ".jar";
+    private static final String ZIP_SUFFIX = ".zip";
+
+    private final String archiveName;
+    private final long archiveSize;
+    private final Size total = new Size("");
+    private final Map<String, Size> directories = new TreeMap<>();
+    private final List<Size> libraries = new ArrayList<>();
+    private final List<Budget> budgets = new ArrayList<>();
+
+    private ArchiveSizeReport(String archiveName, long archiveSize) {
+        this.archiveName = archiveName;
+        this.archiveSize = archiveSize;
+    }
+
+    /**
+     * Reads the sizes of the entries of the archive.
+     *
+     * @param archive the plugin archive
+     * @param coordinates the dependency coordinates of the libraries, by file name
+     */
+    public static ArchiveSizeReport read(File archive, Map<String, String> coordinates) throws IOException {
+        ArchiveSizeReport report = new ArchiveSizeReport(archive.getName(), archive.length());
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                String name = entry.getName();
+                long compressedSize = entry.getCompressedSize();
+                long size = entry.getSize();
+                report.total.add(compressedSize, size);
+                int index = name.lastIndexOf('/');
+                String directory = index < 0 ? "" : name.substring(0, index);
+                report.directories.computeIfAbsent(directory, Size::new).add(compressedSize, size);
+                if (name.endsWith(JAR_SUFFIX) || name.endsWith(ZIP_SUFFIX)) {
+                    Size library = new Size(name);
+                    library.coordinate = coordinates.get(name.substring(index + 1));
+                    library.add(compressedSize, size);
+                    report.libraries.add(library);
+                }
+            }
+        }
+        report.libraries.sort(Comparator.comparingLong(Size::getCompressedSize).reversed().thenComparing(Size::getPath));
+        return report;
+    }
+
+    public long getArchiveSize() {
+        return archiveSize;
+    }
+
+    public Size getTotal() {
+        return total;
+    }
+
+    public List<Size> getDirectories() {
+        return new ArrayList<>(directories.values());
+    }
+
+    /**
+     * @return the libraries, largest first
+     */
+    public List<Size> getLibraries() {
+        return libraries;
+    }
+
+    public List<Budget> getBudgets() {
+        return budgets;
+    }
+
+    /**
+     * Compares a size with its budget, the result is included in the report.
+     *
+     * @return true if the size exceeds the budget
+     */
+    public boolean checkBudget(String name, long actual, long limit) {
+        Budget budget = new Budget(name, actual, limit);
+        budgets.add(budget);
+        return budget.isExceeded();
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"archive\": ").append(quote(archiveName)).append(",\n");
+        json.append("  \"archiveSize\": ").append(archiveSize).append(",\n");
+        json.append("  \"entries\": ").append(total.entries).append(",\n");
+        json.append("  \"compressedSize\": ").append(total.compressedSize).append(",\n");
+        json.append("  \"uncompressedSize\": ").append(total.size).append(",\n");
+        json.append("  \"directories\": [");
+        appendSizes(json, getDirectories());
+        json.append("],\n");
+        json.append("  \"libraries\": [");
+        appendSizes(json, libraries);
+        json.append("],\n");
+        json.append("  \"budgets\": [");
+        for (int i = 0; i < budgets.size(); i++) {
+            Budget budget = budgets.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"name\": ").append(quote(budget.name))
+                .append(", \"limit\": ").append(budget.limit)
+                .append(", \"actual\": ").append(budget.actual)
+                .append(", \"exceeded\": ").append(budget.isExceeded()).append('}');
+        }
+        json.append(budgets.isEmpty() ? "" : "\n  ").append("]\n");
+        json.append("}\n");
+        return json.toString();
+    }
+
+    private static void appendSizes(StringBuilder json, List<Size> sizes) {
+        for (int i = 0; i < sizes.size(); i++) {
+            Size size = sizes.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("    {\"path\": ").append(quote(size.path));
+            if (size.coordinate != null) {
+                json.append(", \"coordinate\": ").append(quote(size.coordinate));
+            }
+            json.append(", \"entries\": ").append(size.entries)
+                .append(", \"compressedSize\": ").append(size.compressedSize)
+                .append(", \"uncompressedSize\": ").append(size.size).append('}');
+        }
+        if (!sizes.isEmpty()) {
+            json.append("\n  ");
+        }
+    }
+
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': quoted.append("\\\""); break;
+                case '\\': quoted.append("\\\\"); break;
+                case '\n': quoted.append("\\n"); break;
+                case '\r': quoted.append("\\r"); break;
+                case '\t': quoted.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    public static class Size {
+
+        private final String path;
+        private String coordinate;
+        private int entries;
+        private long compressedSize;
+        private long size;
+
+        Size(String path) {
+            this.path = path;
+        }
+
+        void add(long compressedSize, long size) {
+            this.entries++;
+            this.compressedSize += compressedSize;
+            this.size += size;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public String getCoordinate() {
+            return coordinate;
+        }
+
+        public int getEntries() {
+            return entries;
+        }
+
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+
+    public static class Budget {
+
+        private final String name;
+        private final long actual;
+        private final long limit;
+
+        Budget(String name, long actual, long limit) {
+            this.name = name;
+            this.actual = actual;
+            this.limit = limit;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getActual() {
+            return actual;
+        }
+
+        public long getLimit() {
+            return limit;
+        }
+
+        public boolean isExceeded() {
+            return actual > limit;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Checks that the superclasses, interfaces and constructor parameter types of a bean class are
+ * available from the plugin jar or the classpath. Classes in the jar are read from the jar when
+ * needed and the classpath is indexed lazily.
+ */
+public class BeanClassAnalyzer implements Closeable {
+
+    public enum Reference {
+        SUPERTYPE,
+        CONSTRUCTOR_PARAMETER
+    }
+
+    public static class MissingType {
+
+        private final Reference reference;
+        private final String name;
+
+        MissingType(Reference reference, String name) {
+            this.reference = reference;
+            this.name = name;
+        }
+
+        public Reference getReference() {
+            return reference;
+        }
+
+        /**
+         * @return the name of the missing type, for example {@code com.example.Base}
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final File jar;
+    private final ClassIndex jarClasses;
+    private final ClasspathIndex classpath;
+    private final Map<String, ClassFile> classFiles = new HashMap<>();
+    private ZipFile zipFile;
+
+    public BeanClassAnalyzer(File jar, ClassIndex jarClasses, Iterable<File> classpath) {
+        this.jar = jar;
+        this.jarClasses = jarClasses;
+        this.classpath = new ClasspathIndex(classpath);
+    }
+
+    /**
+     * Returns the types referenced by the bean class that are not available. The bean class must be in the jar.
+     *
+     * @param className the name of the bean class, for example {@code com.example.Plugin}
+     * @return the missing types
+     * @throws IOException if a class in the jar cannot be read
+     */
+    public List<MissingType> analyze(String className) throws IOException {
+        List<MissingType> missing = new ArrayList<>();
+        ClassFile beanClass = readClass(className.replace('.', '/'));
+
+        for (String type : beanClass.getConstructorParameterTypes()) {
+            if (!isAvailable(type)) {
+                missing.add(new MissingType(Reference.CONSTRUCTOR_PARAMETER, type.replace('/', '.')));
+            }
+        }
+
+        Set<String> visited = new HashSet<>();
+        Deque<String> supertypes = new ArrayDeque<>();
+        addSupertypes(beanClass, supertypes);
+        while (!supertypes.isEmpty()) {
+            String type = supertypes.removeFirst();
+            if (!visited.add(type)) {
+                continue;
+            }
+            if (jarClasses.contains(type)) {
+                addSupertypes(readClass(type), supertypes);
+            } else if (!classpath.contains(type)) {
+                missing.add(new MissingType(Reference.SUPERTYPE, type.replace('/', '.')));
+            }
+        }
+        return missing;
+    }
+
+    private boolean isAvailable(String type) {
+        return jarClasses.contains(type) || classpath.contains(type);
+    }
+
+    private static void addSupertypes(ClassFile classFile, Deque<String> supertypes) {
+        if (classFile.getSuperName() != null) {
+            supertypes.add(classFile.getSuperName());
+        }
+        supertypes.addAll(classFile.getInterfaces());
+    }
+
+    private ClassFile readClass(String name) throws IOException {
+        ClassFile classFile = classFiles.get(name);
+        if (classFile == null) {
+            if (zipFile == null) {
+                zipFile = new ZipFile(jar);
+            }
+            ZipEntry entry = zipFile.getEntry(name + CLASS_SUFFIX);
+            if (entry == null) {
+                throw new IOException("Class " + name + " not found in " + jar.getName());
+            }
+            try (InputStream in = zipFile.getInputStream(entry)) {
+                classFile = ClassFile.read(in);
+            }
+            classFiles.put(name, classFile);
+        }
+        return classFile;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (zipFile != null) {
+            zipFile.close();
+        }
+    }
+}
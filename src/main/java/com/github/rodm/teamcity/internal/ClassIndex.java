@@ -0,0 +1,193 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.gradle.api.GradleException;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * A compact set of class names backed by an open addressing table of 64-bit hashes.
+ * Class names are never retained, paths such as {@code com/example/Plugin.class} and
+ * names such as {@code com.example.Plugin} hash to the same value.
+ */
+public class ClassIndex {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private long[] table;
+    private int size;
+
+    public ClassIndex() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ClassIndex(int expectedSize) {
+        this.table = new long[tableSizeFor(expectedSize)];
+    }
+
+    /**
+     * Adds a class file using its relative path, for example {@code com/example/Plugin.class}.
+     *
+     * @param path the relative path of the class file
+     */
+    public void add(String path) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = hash(hash, path, classNameLength(path));
+        insert(hash);
+    }
+
+    /**
+     * Adds a class file using the segments of its relative path.
+     *
+     * @param segments the path segments of the class file
+     */
+    public void add(String[] segments) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < segments.length; i++) {
+            if (i > 0) {
+                hash = hash(hash, '/');
+            }
+            String segment = segments[i];
+            int length = i == segments.length - 1 ? classNameLength(segment) : segment.length();
+            hash = hash(hash, segment, length);
+        }
+        insert(hash);
+    }
+
+    /**
+     * Returns true if the index contains the class.
+     *
+     * @param className the fully qualified class name, for example {@code com.example.Plugin}
+     * @return true if the class was added to the index
+     */
+    public boolean contains(String className) {
+        long hash = nonZero(hash(FNV_OFFSET_BASIS, className, className.length()));
+        int mask = table.length - 1;
+        int index = spread(hash) & mask;
+        while (table[index] != 0) {
+            if (table[index] == hash) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns a fingerprint of the set of classes, independent of the order the classes were added.
+     *
+     * @return a hex encoded SHA-256 digest of the class hashes
+     */
+    public String fingerprint() {
+        long[] hashes = Arrays.stream(table).filter(hash -> hash != 0).sorted().toArray();
+        ByteBuffer buffer = ByteBuffer.allocate(hashes.length * Long.BYTES);
+        buffer.asLongBuffer().put(hashes);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(buffer.array());
+            StringBuilder result = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                result.append(String.format("%02x", b));
+            }
+            return result.toString();
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new GradleException("Failure creating class index fingerprint", e);
+        }
+    }
+
+    private void insert(long value) {
+        long hash = nonZero(value);
+        if ((size + 1) * 2 > table.length) {
+            resize();
+        }
+        if (insert(table, hash)) {
+            size++;
+        }
+    }
+
+    private static boolean insert(long[] table, long hash) {
+        int mask = table.length - 1;
+        int index = spread(hash) & mask;
+        while (table[index] != 0) {
+            if (table[index] == hash) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        table[index] = hash;
+        return true;
+    }
+
+    private void resize() {
+        long[] resized = new long[table.length * 2];
+        for (long hash : table) {
+            if (hash != 0) {
+                insert(resized, hash);
+            }
+        }
+        table = resized;
+    }
+
+    private static int classNameLength(String name) {
+        return name.endsWith(CLASS_SUFFIX) ? name.length() - CLASS_SUFFIX.length() : name.length();
+    }
+
+    private static long hash(long hash, String value, int length) {
+        for (int i = 0; i < length; i++) {
+            hash = hash(hash, value.charAt(i));
+        }
+        return hash;
+    }
+
+    private static long hash(long hash, char c) {
+        char normalized = c == '.' ? '/' : c;
+        return (hash ^ normalized) * FNV_PRIME;
+    }
+
+    private static long nonZero(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static int spread(long hash) {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        return Math.max(capacity, 16);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.gradle.api.GradleException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The classes available from a classpath of jars and directories. Each classpath entry is only indexed
+ * when a lookup is not satisfied by the entries already indexed, so a lookup that is found in the first
+ * entries never reads the remaining ones. Classes of the Java runtime are also treated as available.
+ */
+public class ClasspathIndex {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final Deque<File> pending;
+    private final List<ClassIndex> indexed = new ArrayList<>();
+    private final ClassIndex runtimeClasses = new ClassIndex(64);
+    private final ClassIndex missingRuntimeClasses = new ClassIndex(64);
+
+    public ClasspathIndex(Iterable<File> classpath) {
+        this.pending = new ArrayDeque<>();
+        classpath.forEach(pending::add);
+    }
+
+    /**
+     * Returns true if the class is available on the classpath or from the Java runtime.
+     *
+     * @param className the name of the class, for example {@code com/example/Plugin}
+     * @return true if the class is available
+     */
+    public boolean contains(String className) {
+        if (isRuntimeClass(className)) {
+            return true;
+        }
+        for (ClassIndex index : indexed) {
+            if (index.contains(className)) {
+                return true;
+            }
+        }
+        while (!pending.isEmpty()) {
+            ClassIndex index = index(pending.removeFirst());
+            indexed.add(index);
+            if (index.contains(className)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isRuntimeClass(String className) {
+        if (runtimeClasses.contains(className)) {
+            return true;
+        }
+        if (missingRuntimeClasses.contains(className)) {
+            return false;
+        }
+        // the parent of the system class loader only finds the classes of the Java runtime
+        ClassLoader loader = ClassLoader.getSystemClassLoader().getParent();
+        String path = className.replace('.', '/') + CLASS_SUFFIX;
+        boolean found = loader != null ? loader.getResource(path) != null : ClassLoader.getSystemResource(path) != null;
+        (found ? runtimeClasses : missingRuntimeClasses).add(className);
+        return found;
+    }
+
+    private static ClassIndex index(File file) {
+        if (file.isDirectory()) {
+            return indexDirectory(file.toPath());
+        }
+        if (file.isFile()) {
+            return indexJar(file);
+        }
+        return new ClassIndex(0);
+    }
+
+    private static ClassIndex indexJar(File jar) {
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            ClassIndex index = new ClassIndex(zipFile.size());
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().endsWith(CLASS_SUFFIX)) {
+                    index.add(entry.getName());
+                }
+            }
+            return index;
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure reading classes from " + jar, e);
+        }
+    }
+
+    private static ClassIndex indexDirectory(Path dir) {
+        ClassIndex index = new ClassIndex();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.filter(file -> file.getFileName().toString().endsWith(CLASS_SUFFIX))
+                .forEach(file -> index.add(dir.relativize(file).toString().replace(File.separatorChar, '/')));
+            return index;
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure reading classes from " + dir, e);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import com.github.rodm.teamcity.ValidationMode;
 import org.gradle.api.Project;
 import org.gradle.api.provider.Property;
 
+import static com.github.rodm.teamcity.ValidationMode.IGNORE;
 import static com.github.rodm.teamcity.ValidationMode.WARN;
 
 /**
@@ -33,12 +34,18 @@ public abstract class DefaultTeamCityPluginExtension implements TeamCityPluginEx
     private final Property<Boolean> defaultRepositories;
     private final Property<Boolean> allowSnapshotVersions;
     private final Property<ValidationMode> validateBeanDefinition;
+    private final Property<Boolean> streamBeanDefinitionValidation;
+    private final Property<Boolean> analyzeBeanClasses;
+    private final Property<ValidationMode> validateLibraries;
 
     public DefaultTeamCityPluginExtension(Project project) {
         this.version = project.getObjects().property(String.class).convention(DEFAULT_TEAMCITY_API_VERSION);
         this.defaultRepositories = project.getObjects().property(Boolean.class).convention(true);
         this.allowSnapshotVersions = project.getObjects().property(Boolean.class).convention(false);
         this.validateBeanDefinition = project.getObjects().property(ValidationMode.class).convention(WARN);
+        this.streamBeanDefinitionValidation = project.getObjects().property(Boolean.class).convention(false);
+        this.analyzeBeanClasses = project.getObjects().property(Boolean.class).convention(false);
+        this.validateLibraries = project.getObjects().property(ValidationMode.class).convention(IGNORE);
     }
 
     @Override
@@ -101,4 +108,51 @@ public abstract class DefaultTeamCityPluginExtension implements TeamCityPluginEx
     public Property<ValidationMode> getValidateBeanDefinitionProperty() {
         return validateBeanDefinition;
     }
+
+    @Override
+    public void setStreamBeanDefinitionValidation(boolean streaming) {
+        streamBeanDefinitionValidation.set(streaming);
+    }
+
+    @Override
+    public boolean getStreamBeanDefinitionValidation() {
+        return streamBeanDefinitionValidation.get();
+    }
+
+    public Property<Boolean> getStreamBeanDefinitionValidationProperty() {
+        return streamBeanDefinitionValidation;
+    }
+
+    @Override
+    public void setAnalyzeBeanClasses(boolean analyze) {
+        analyzeBeanClasses.set(analyze);
+    }
+
+    @Override
+    public boolean getAnalyzeBeanClasses() {
+        return analyzeBeanClasses.get();
+    }
+
+    public Property<Boolean> getAnalyzeBeanClassesProperty() {
+        return analyzeBeanClasses;
+    }
+
+    @Override
+    public void setValidateLibraries(ValidationMode mode) {
+        validateLibraries.set(mode);
+    }
+
+    @Override
+    public void setValidateLibraries(String mode) {
+        validateLibraries.set(ValidationMode.valueOf(mode.toUpperCase()));
+    }
+
+    @Override
+    public ValidationMode getValidateLibraries() {
+        return validateLibraries.get();
+    }
+
+    public Property<ValidationMode> getValidateLibrariesProperty() {
+        return validateLibraries;
+    }
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.gradle.api.GradleException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The SHA-256 hashes of the plugins deployed to a TeamCity data directory. A plugin is unchanged when the hash of
+ * the plugin archive matches the hash recorded when it was deployed and the deployed archive has the same size, so
+ * unchanged plugins don't need to be copied or reloaded.
+ */
+public class DeployedPluginsManifest {
+
+    static final String MANIFEST_PATH = "system/pluginData/gradle-teamcity-plugin/deployed-plugins.properties";
+
+    private final File dataDir;
+    private final Map<String, String> hashes = new HashMap<>();
+
+    public DeployedPluginsManifest(File dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    public File getManifestFile() {
+        return new File(dataDir, MANIFEST_PATH);
+    }
+
+    /**
+     * @param plugin the plugin archive to deploy
+     * @return true if the plugin archive was deployed and has not changed since
+     */
+    public synchronized boolean isUnchanged(File plugin) {
+        File deployed = new File(new File(dataDir, "plugins"), plugin.getName());
+        if (!plugin.isFile() || !deployed.isFile() || deployed.length() != plugin.length()) {
+            return false;
+        }
+        String recorded = load().getProperty(plugin.getName());
+        return recorded != null && recorded.equals(hash(plugin));
+    }
+
+    /**
+     * Records the hashes of the deployed plugins.
+     */
+    public synchronized void update(Iterable<File> plugins) {
+        Properties properties = load();
+        for (File plugin : plugins) {
+            if (plugin.isFile()) {
+                properties.setProperty(plugin.getName(), hash(plugin));
+            } else {
+                properties.remove(plugin.getName());
+            }
+        }
+        save(properties);
+    }
+
+    /**
+     * Removes the hashes of the un-deployed plugins.
+     */
+    public synchronized void remove(Iterable<File> plugins) {
+        File manifestFile = getManifestFile();
+        if (!manifestFile.isFile()) {
+            return;
+        }
+        Properties properties = load();
+        for (File plugin : plugins) {
+            properties.remove(plugin.getName());
+        }
+        save(properties);
+    }
+
+    private String hash(File plugin) {
+        // the hash is only valid for the current contents of the plugin archive
+        String key = plugin.getAbsolutePath() + ":" + plugin.length() + ":" + plugin.lastModified();
+        return hashes.computeIfAbsent(key, k -> {
+            try (InputStream in = Files.newInputStream(plugin.toPath())) {
+                return ArchiveManifest.toHex(ArchiveManifest.hash(in));
+            }
+            catch (IOException e) {
+                throw new GradleException("Failure reading plugin " + plugin, e);
+            }
+        });
+    }
+
+    private Properties load() {
+        Properties properties = new Properties();
+        File manifestFile = getManifestFile();
+        if (manifestFile.isFile()) {
+            try (InputStream in = Files.newInputStream(manifestFile.toPath())) {
+                properties.load(in);
+            }
+            catch (IOException e) {
+                throw new GradleException("Failure reading deployed plugins manifest " + manifestFile, e);
+            }
+        }
+        return properties;
+    }
+
+    private void save(Properties properties) {
+        File manifestFile = getManifestFile();
+        try {
+            Files.createDirectories(manifestFile.getParentFile().toPath());
+            try (OutputStream out = Files.newOutputStream(manifestFile.toPath())) {
+                properties.store(out, "Plugins deployed by the TeamCity Gradle plugin");
+            }
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure writing deployed plugins manifest " + manifestFile, e);
+        }
+    }
+}
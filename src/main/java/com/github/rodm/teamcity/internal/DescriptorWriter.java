@@ -0,0 +1,211 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+
+/**
+ * Writes a plugin descriptor as a stream of indented elements. The layout and escaping follow the
+ * output of {@code XmlUtil.serialize} used previously by the descriptor generators, so the same
+ * descriptor is written with the same bytes.
+ */
+public class DescriptorWriter {
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+    private static final String SCHEMA_INSTANCE_NS = "http://www.w3.org/2001/XMLSchema-instance";
+    private static final String INDENT = "  ";
+    private static final String NEW_LINE = "\n";
+
+    // on Java 9 and later the Transformer used by XmlUtil also wrote a whitespace-only line before each tag
+    private static final boolean WHITESPACE_LINES = !System.getProperty("java.specification.version", "").startsWith("1.");
+
+    private final Writer out;
+    private final Deque<String> elements = new ArrayDeque<>();
+
+    public DescriptorWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the XML declaration and the start of the root element.
+     *
+     * @param name the name of the root element
+     * @param schemaLocation the value of the {@code xsi:noNamespaceSchemaLocation} attribute
+     */
+    public void startDocument(String name, String schemaLocation) throws IOException {
+        out.write(XML_DECLARATION);
+        writeRootElement(name, schemaLocation);
+        out.write(">");
+        elements.push(name);
+    }
+
+    /**
+     * Writes a document containing only an empty root element.
+     */
+    public void emptyDocument(String name, String schemaLocation) throws IOException {
+        out.write(XML_DECLARATION);
+        writeRootElement(name, schemaLocation);
+        out.write("/>");
+        out.write(NEW_LINE);
+        out.flush();
+    }
+
+    public void startElement(String name) throws IOException {
+        startElement(name, Collections.emptyMap());
+    }
+
+    public void startElement(String name, Map<String, ?> attributes) throws IOException {
+        indent(elements.size(), false);
+        writeStartTag(name, attributes);
+        out.write(">");
+        elements.push(name);
+    }
+
+    public void endElement() throws IOException {
+        String name = elements.pop();
+        indent(elements.size(), true);
+        out.write("</");
+        out.write(name);
+        out.write(">");
+    }
+
+    public void emptyElement(String name) throws IOException {
+        emptyElement(name, Collections.emptyMap());
+    }
+
+    public void emptyElement(String name, Map<String, ?> attributes) throws IOException {
+        indent(elements.size(), false);
+        writeStartTag(name, attributes);
+        out.write("/>");
+    }
+
+    public void element(String name, Object value) throws IOException {
+        element(name, Collections.emptyMap(), value);
+    }
+
+    /**
+     * Writes an element containing only text. A null value is written as the text {@code null},
+     * matching the previous generator, and an empty value as an empty element.
+     */
+    public void element(String name, Map<String, ?> attributes, Object value) throws IOException {
+        String text = String.valueOf(value);
+        if (text.isEmpty()) {
+            emptyElement(name, attributes);
+            return;
+        }
+        indent(elements.size(), false);
+        writeStartTag(name, attributes);
+        out.write(">");
+        writeEscaped(text, false);
+        out.write("</");
+        out.write(name);
+        out.write(">");
+    }
+
+    public void endDocument() throws IOException {
+        endElement();
+        out.write(NEW_LINE);
+        out.flush();
+    }
+
+    private void writeRootElement(String name, String schemaLocation) throws IOException {
+        out.write("<");
+        out.write(name);
+        writeAttribute("xmlns:xsi", SCHEMA_INSTANCE_NS);
+        writeAttribute("xsi:noNamespaceSchemaLocation", schemaLocation);
+    }
+
+    private void writeStartTag(String name, Map<String, ?> attributes) throws IOException {
+        out.write("<");
+        out.write(name);
+        for (Map.Entry<String, ?> attribute : attributes.entrySet()) {
+            writeAttribute(attribute.getKey(), String.valueOf(attribute.getValue()));
+        }
+    }
+
+    private void writeAttribute(String name, String value) throws IOException {
+        out.write(" ");
+        out.write(name);
+        out.write("=\"");
+        writeEscaped(value, true);
+        out.write("\"");
+    }
+
+    /**
+     * Escapes the markup characters. Whitespace other than a space is written as a character reference
+     * in attribute values, as a parser replaces it with a space. In text a carriage return is written as
+     * a line feed, as a parser normalizes the line endings. Supplementary characters are written as
+     * character references.
+     */
+    private void writeEscaped(String value, boolean attribute) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    out.write("&amp;");
+                    break;
+                case '<':
+                    out.write("&lt;");
+                    break;
+                case '>':
+                    out.write("&gt;");
+                    break;
+                case '"':
+                    out.write(attribute ? "&quot;" : "\"");
+                    break;
+                case '\n':
+                    out.write(attribute ? "&#10;" : NEW_LINE);
+                    break;
+                case '\r':
+                    if (attribute) {
+                        out.write("&#13;");
+                    } else if (i + 1 == value.length() || value.charAt(i + 1) != '\n') {
+                        out.write(NEW_LINE);
+                    }
+                    break;
+                case '\t':
+                    out.write(attribute ? "&#9;" : "\t");
+                    break;
+                default:
+                    if (Character.isHighSurrogate(c) && i + 1 < value.length()) {
+                        out.write("&#" + value.codePointAt(i) + ";");
+                        i++;
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+    }
+
+    private void indent(int level, boolean endTag) throws IOException {
+        if (WHITESPACE_LINES) {
+            newLine(2 * level + (endTag ? 1 : 0));
+        }
+        newLine(level);
+    }
+
+    private void newLine(int indents) throws IOException {
+        out.write(NEW_LINE);
+        for (int i = 0; i < indents; i++) {
+            out.write(INDENT);
+        }
+    }
+}
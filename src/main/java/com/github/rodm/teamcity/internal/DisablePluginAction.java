@@ -15,18 +15,13 @@
  */
 package com.github.rodm.teamcity.internal;
 
-import org.gradle.api.GradleException;
 import org.gradle.api.Task;
 import org.gradle.api.logging.Logger;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 public class DisablePluginAction extends PluginAction {
 
@@ -34,8 +29,18 @@ public class DisablePluginAction extends PluginAction {
     private static final String PLUGIN_PARTIALLY_UNLOADED = "{}: Plugin '{}' partially unloaded - some parts could still be running. Server restart could be needed.";
     private static final String DISABLING_PLUGIN_FAILED = "{}: Disabling plugin '{}' failed: {}";
 
+    private final DeployedPluginsManifest manifest;
+
     public DisablePluginAction(Logger logger, File dataDir, Set<File> plugins, List<String> disabledPlugins) {
+        this(logger, dataDir, plugins, disabledPlugins, null);
+    }
+
+    /**
+     * @param manifest the manifest of the deployed plugins, the unchanged plugins are not reloaded, or null to reload all the plugins
+     */
+    public DisablePluginAction(Logger logger, File dataDir, Set<File> plugins, List<String> disabledPlugins, DeployedPluginsManifest manifest) {
         super(logger, dataDir, plugins, disabledPlugins, false);
+        this.manifest = manifest;
     }
 
     @Override
@@ -44,29 +49,36 @@ public class DisablePluginAction extends PluginAction {
         return new File(pluginDir, pluginName).exists();
     }
 
+    @Override
+    public boolean isUnchanged(File plugin) {
+        return manifest != null && manifest.isUnchanged(plugin);
+    }
+
     @Override
     public void skipAction(String pluginName) {
-        unloadedPlugins.add(pluginName);
+        addUnloadedPlugin(pluginName);
     }
 
     public void sendRequest(HttpURLConnection request, final String pluginName) {
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(request.getInputStream()))) {
-            String result = br.lines().collect(Collectors.joining());
-            if (result.contains("Plugin unloaded successfully")) {
-                getLogger().info(PLUGIN_SUCCESSFULLY_UNLOADED, getPath(), pluginName);
-                unloadedPlugins.add(pluginName);
+        String result = readResponse(request);
+        if (result.contains("Plugin unloaded successfully")) {
+            getLogger().info(PLUGIN_SUCCESSFULLY_UNLOADED, getPath(), pluginName);
+            addUnloadedPlugin(pluginName);
+        } else {
+            if (result.contains("Plugin unloaded partially")) {
+                getLogger().warn(PLUGIN_PARTIALLY_UNLOADED, getPath(), pluginName);
+                addUnloadedPlugin(pluginName);
             } else {
-                if (result.contains("Plugin unloaded partially")) {
-                    getLogger().warn(PLUGIN_PARTIALLY_UNLOADED, getPath(), pluginName);
-                    unloadedPlugins.add(pluginName);
-                } else {
-                    final String message = result.replace("<response>", "").replace("</response>", "");
-                    getLogger().warn(DISABLING_PLUGIN_FAILED, getPath(), pluginName, message);
-                }
+                final String message = result.replace("<response>", "").replace("</response>", "");
+                getLogger().warn(DISABLING_PLUGIN_FAILED, getPath(), pluginName, message);
             }
         }
-        catch (IOException e) {
-            throw new GradleException("Failure reading response from server");
+    }
+
+    // the requests for the plugins are sent concurrently
+    private void addUnloadedPlugin(String pluginName) {
+        synchronized (unloadedPlugins) {
+            unloadedPlugins.add(pluginName);
         }
     }
 }
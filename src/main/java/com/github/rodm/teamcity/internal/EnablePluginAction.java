@@ -15,18 +15,13 @@
  */
 package com.github.rodm.teamcity.internal;
 
-import org.gradle.api.GradleException;
 import org.gradle.api.Task;
 import org.gradle.api.logging.Logger;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 public class EnablePluginAction extends PluginAction {
 
@@ -43,18 +38,12 @@ public class EnablePluginAction extends PluginAction {
     }
 
     public void sendRequest(HttpURLConnection request, final String pluginName) {
-        try {
-            BufferedReader br = new BufferedReader(new InputStreamReader(request.getInputStream()));
-            String result = br.lines().collect(Collectors.joining());
-            if (result.contains("Plugin loaded successfully")) {
-                getLogger().info(PLUGIN_SUCCESSFULLY_LOADED, getPath(), pluginName);
-            } else {
-                final String message = result.replace("<response>", "").replace("</response>", "");
-                getLogger().warn(ENABLING_PLUGIN_FAILED, getPath(), pluginName, message);
-            }
-        }
-        catch (IOException e) {
-            throw new GradleException("Failure reading response from server");
+        String result = readResponse(request);
+        if (result.contains("Plugin loaded successfully")) {
+            getLogger().info(PLUGIN_SUCCESSFULLY_LOADED, getPath(), pluginName);
+        } else {
+            final String message = result.replace("<response>", "").replace("</response>", "");
+            getLogger().warn(ENABLING_PLUGIN_FAILED, getPath(), pluginName, message);
         }
     }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2020 Rod MacKenzie
+ * Copyright 2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,18 +18,18 @@ package com.github.rodm.teamcity.internal;
 import org.gradle.api.Action;
 import org.gradle.api.file.FileCopyDetails;
 
-import java.util.Set;
+public class ExcludeUnchangedPluginsAction implements Action<FileCopyDetails> {
 
-public class ClassCollectorAction implements Action<FileCopyDetails> {
+    private final DeployedPluginsManifest manifest;
 
-    private final Set<String> classes;
-
-    public ClassCollectorAction(Set<String> classes) {
-        this.classes = classes;
+    public ExcludeUnchangedPluginsAction(DeployedPluginsManifest manifest) {
+        this.manifest = manifest;
     }
 
     @Override
     public void execute(FileCopyDetails fileCopyDetails) {
-        classes.add(fileCopyDetails.getRelativePath().toString());
+        if (manifest.isUnchanged(fileCopyDetails.getFile())) {
+            fileCopyDetails.exclude();
+        }
     }
 }
@@ -22,14 +22,14 @@ import java.util.Set;
 
 public class FileCollectorAction implements Action<FileCopyDetails> {
 
-    private final Set<FileCopyDetails> files;
+    private final Set<String> paths;
 
-    public FileCollectorAction(Set<FileCopyDetails> files) {
-        this.files = files;
+    public FileCollectorAction(Set<String> paths) {
+        this.paths = paths;
     }
 
     @Override
     public void execute(FileCopyDetails fileCopyDetails) {
-        files.add(fileCopyDetails);
+        paths.add(fileCopyDetails.getPath());
     }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Build service holding the names of the classes in each library, so the libraries shared by the
+ * server and agent plugins are only read once in a build. The service is discarded at the end of the
+ * build. The libraries are identified by their path, size and modification time, not by their contents,
+ * hashing a jar would cost about as much as listing its entries. Whether the libraries are checked again
+ * in a later build is decided by the up-to-date checks and the build cache, using the content hashes of
+ * the task inputs.
+ */
+public abstract class LibraryIndexCache implements BuildService<BuildServiceParameters.None> {
+
+    public static final String LIBRARY_INDEX_CACHE_SERVICE_NAME = "teamcityLibraryIndexCache";
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final Map<Key, List<String>> classes = new ConcurrentHashMap<>();
+
+    public static Provider<LibraryIndexCache> register(Gradle gradle) {
+        return gradle.getSharedServices().registerIfAbsent(LIBRARY_INDEX_CACHE_SERVICE_NAME, LibraryIndexCache.class, spec -> {});
+    }
+
+    /**
+     * Returns the names of the classes in the library, excluding module and package info classes and
+     * the classes for specific Java versions in a multi-release jar.
+     *
+     * @param library the jar file
+     * @return the class names, in the form {@code com/example/Name}
+     */
+    public List<String> getClasses(File library) {
+        Key key = new Key(library.getAbsolutePath(), library.length(), library.lastModified());
+        return classes.computeIfAbsent(key, k -> readClasses(library));
+    }
+
+    static List<String> readClasses(File library) {
+        try (ZipFile zipFile = new ZipFile(library)) {
+            List<String> names = new ArrayList<>();
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.endsWith(CLASS_SUFFIX) && !name.startsWith("META-INF/")
+                    && !name.endsWith("module-info.class") && !name.endsWith("package-info.class"))
+                {
+                    names.add(name.substring(0, name.length() - CLASS_SUFFIX.length()));
+                }
+            }
+            return Collections.unmodifiableList(names);
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure reading classes from " + library, e);
+        }
+    }
+
+    private static final class Key {
+
+        private final String path;
+        private final long length;
+        private final long lastModified;
+
+        private Key(String path, long length, long lastModified) {
+            this.path = path;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return length == key.length && lastModified == key.lastModified && path.equals(key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, length, lastModified);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.gradle.api.GradleException;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Resolves the external DTDs listed in the {@code /schema/catalog.properties} catalog to resources
+ * bundled with the plugin. Identifiers that are not in the catalog are left to the parser.
+ */
+public class LocalEntityResolver implements EntityResolver {
+
+    private static final String SCHEMA_DIR = "/schema/";
+    private static final String CATALOG = SCHEMA_DIR + "catalog.properties";
+
+    private static final LocalEntityResolver INSTANCE = new LocalEntityResolver(loadCatalog());
+
+    private final Map<String, String> entries;
+
+    LocalEntityResolver(Map<String, String> entries) {
+        this.entries = entries;
+    }
+
+    public static LocalEntityResolver getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public InputSource resolveEntity(String publicId, String systemId) throws IOException {
+        URL url = getResource(publicId);
+        if (url == null) {
+            url = getResource(systemId);
+        }
+        if (url == null) {
+            return null;
+        }
+        InputSource source = new InputSource(url.openStream());
+        source.setPublicId(publicId);
+        source.setSystemId(url.toExternalForm());
+        return source;
+    }
+
+    private URL getResource(String id) {
+        String name = id == null ? null : entries.get(id);
+        return name == null ? null : LocalEntityResolver.class.getResource(SCHEMA_DIR + name);
+    }
+
+    private static Map<String, String> loadCatalog() {
+        Properties catalog = new Properties();
+        try (InputStream in = LocalEntityResolver.class.getResourceAsStream(CATALOG)) {
+            if (in != null) {
+                catalog.load(in);
+            }
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure reading catalog " + CATALOG, e);
+        }
+        Map<String, String> entries = new HashMap<>();
+        catalog.stringPropertyNames().forEach(id -> entries.put(id, catalog.getProperty(id)));
+        return entries;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+public class OutputFiles {
+
+    /**
+     * Writes the content to the file unless the file already has the same content, so the
+     * modification time of an unchanged file is preserved.
+     *
+     * @param file the file to write
+     * @param content the content of the file
+     * @return true if the file was written
+     * @throws IOException if the file cannot be read or written
+     */
+    public static boolean writeIfChanged(File file, byte[] content) throws IOException {
+        if (file.isFile() && file.length() == content.length && Arrays.equals(Files.readAllBytes(file.toPath()), content)) {
+            return false;
+        }
+        Files.write(file.toPath(), content);
+        return true;
+    }
+
+    private OutputFiles() {
+        throw new IllegalStateException("Utility class");
+    }
+}
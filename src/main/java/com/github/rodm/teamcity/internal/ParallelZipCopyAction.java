@@ -0,0 +1,344 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCopyDetails;
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.internal.file.copy.CopyActionProcessingStream;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.WorkResult;
+import org.gradle.api.tasks.WorkResults;
+import org.gradle.api.tasks.bundling.ZipEntryCompression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+
+import static com.github.rodm.teamcity.internal.ZipArchiveWriter.DEFLATED;
+import static com.github.rodm.teamcity.internal.ZipArchiveWriter.STORED;
+
+/**
+ * Creates a zip archive compressing the entries concurrently, using one thread per processor by default.
+ * The file contents are read in the order the entries are visited and the compressed entries are
+ * written in the same order, so the archive is the same as when compressing on a single thread.
+ * The size of the entries read but not yet written is limited, and large files are compressed on the
+ * calling thread while they are written, without reading them into memory.
+ *
+ * <p>When updating incrementally, the entries of the existing archive with the same contents and
+ * attributes are copied without being compressed again. The contents of every file are still read to
+ * detect changes, only the compression is avoided.
+ *
+ * <p>The archive is written to a temporary file that then replaces the existing archive.
+ */
+public class ParallelZipCopyAction implements CopyAction {
+
+    private static final Logger LOGGER = Logging.getLogger(ParallelZipCopyAction.class);
+
+    private static final long CONSTANT_DOS_TIME = ZipArchiveWriter.toDosTime(1980, 2, 1, 0, 0, 0);
+
+    // files larger than this are compressed while they are written instead of being read into memory
+    private static final long STREAMED_FILE_SIZE = 8 * 1024 * 1024;
+    // limits the memory used by entries read or compressed but not yet written
+    private static final long MAX_PENDING_SIZE = 64 * 1024 * 1024;
+
+    private final File zipFile;
+    private final ZipEntryCompression compression;
+    private final boolean preserveFileTimestamps;
+    private final boolean storeArchives;
+    private final boolean incremental;
+    private final int threads;
+    private final AtomicInteger reused = new AtomicInteger();
+
+    /**
+     * @param storeArchives store jar and zip files without compressing them again
+     * @param incremental copy the unchanged entries of an existing archive
+     * @param threads the number of threads used to compress entries
+     */
+    public ParallelZipCopyAction(File zipFile, ZipEntryCompression compression, boolean preserveFileTimestamps,
+                                 boolean storeArchives, boolean incremental, int threads)
+    {
+        this.zipFile = zipFile;
+        this.compression = compression;
+        this.preserveFileTimestamps = preserveFileTimestamps;
+        this.storeArchives = storeArchives;
+        this.incremental = incremental;
+        this.threads = threads;
+    }
+
+    @Override
+    public WorkResult execute(CopyActionProcessingStream stream) {
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "plugin-archive-compressor-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        int maxPending = threads * 4;
+        ZipArchiveIndex previous = incremental ? readPreviousArchive() : null;
+        // the archive is replaced instead of rewritten, the previous archive is read while the new archive is written
+        // and hard links to the previous archive keep its contents
+        File outputFile = new File(zipFile.getParentFile(), zipFile.getName() + ".tmp");
+        try (ZipArchiveWriter writer = new ZipArchiveWriter(outputFile)) {
+            PendingEntries pending = new PendingEntries(writer);
+            stream.process(details -> {
+                try {
+                    if (!details.isDirectory() && details.getSize() > STREAMED_FILE_SIZE) {
+                        pending.writeCompleted(0, 0);
+                        writeStreamed(writer, details, previous);
+                    }
+                    else {
+                        long size = details.isDirectory() ? 0 : details.getSize();
+                        pending.writeCompleted(maxPending - 1, MAX_PENDING_SIZE - size);
+                        pending.add(submit(executor, details, previous), size);
+                    }
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            pending.writeCompleted(0, 0);
+        }
+        catch (IOException | UncheckedIOException e) {
+            deleteIncomplete(outputFile);
+            throw new GradleException(String.format("Could not create ZIP '%s'.", zipFile), e);
+        }
+        catch (RuntimeException e) {
+            deleteIncomplete(outputFile);
+            throw e;
+        }
+        finally {
+            executor.shutdownNow();
+            if (previous != null) {
+                closePreviousArchive(previous);
+            }
+        }
+        moveArchive(outputFile);
+        if (previous != null) {
+            LOGGER.info("Copied {} unchanged entries from the previous archive '{}'", reused.get(), zipFile);
+        }
+        return WorkResults.didWork(true);
+    }
+
+    private ZipArchiveIndex readPreviousArchive() {
+        if (!zipFile.isFile()) {
+            return null;
+        }
+        try {
+            return ZipArchiveIndex.read(zipFile);
+        }
+        catch (IOException e) {
+            LOGGER.info("Could not read the previous archive '{}', creating a new archive: {}", zipFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void closePreviousArchive(ZipArchiveIndex previous) {
+        try {
+            previous.close();
+        }
+        catch (IOException e) {
+            // ignore, the archive was only read
+        }
+    }
+
+    private static void deleteIncomplete(File outputFile) {
+        try {
+            Files.deleteIfExists(outputFile.toPath());
+        }
+        catch (IOException e) {
+            // ignore, the archive is replaced when the task runs again
+        }
+    }
+
+    private void moveArchive(File outputFile) {
+        try {
+            Files.move(outputFile.toPath(), zipFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException e) {
+            throw new GradleException(String.format("Could not create ZIP '%s'.", zipFile), e);
+        }
+    }
+
+    private Future<ZipArchiveWriter.Entry> submit(ExecutorService executor, FileCopyDetails details, ZipArchiveIndex previous) {
+        String name = details.getRelativePath().getPathString();
+        int mode = details.getMode();
+        long dosTime = dosTime(details);
+        if (details.isDirectory()) {
+            return CompletableFuture.completedFuture(ZipArchiveWriter.Entry.directory(name + "/", mode, dosTime));
+        }
+        // the contents are read on the calling thread, the source may not support concurrent access
+        Buffer contents = new Buffer(details.getSize());
+        details.copyTo(contents);
+        int method = method(name);
+        return executor.submit(() -> compress(name, mode, dosTime, method, contents, previous));
+    }
+
+    private void writeStreamed(ZipArchiveWriter writer, FileCopyDetails details, ZipArchiveIndex previous) throws IOException {
+        String name = details.getRelativePath().getPathString();
+        int mode = details.getMode();
+        long dosTime = dosTime(details);
+        int method = method(name);
+        ZipArchiveIndex.IndexedEntry previousEntry = previous != null ? previous.getEntry(name) : null;
+        if (previousEntry != null) {
+            CRC32 crc = new CRC32();
+            try (CheckedOutputStream out = new CheckedOutputStream(NullOutputStream.INSTANCE, crc)) {
+                details.copyTo(out);
+            }
+            if (previousEntry.matches(method, dosTime, crc.getValue(), details.getSize(), mode)) {
+                reused.incrementAndGet();
+                writer.write(ZipArchiveWriter.Entry.copy(name, mode, dosTime, previous, previousEntry));
+                return;
+            }
+        }
+        writer.write(name, mode, dosTime, method, details::copyTo);
+    }
+
+    private long dosTime(FileCopyDetails details) {
+        return preserveFileTimestamps ? ZipArchiveWriter.toDosTime(details.getLastModified()) : CONSTANT_DOS_TIME;
+    }
+
+    private int method(String name) {
+        return compression == ZipEntryCompression.STORED || (storeArchives && isArchive(name)) ? STORED : DEFLATED;
+    }
+
+    private static boolean isArchive(String name) {
+        return name.regionMatches(true, name.length() - 4, ".jar", 0, 4)
+            || name.regionMatches(true, name.length() - 4, ".zip", 0, 4);
+    }
+
+    private ZipArchiveWriter.Entry compress(String name, int mode, long dosTime, int method, Buffer contents, ZipArchiveIndex previous)
+        throws IOException
+    {
+        CRC32 crc = new CRC32();
+        crc.update(contents.array(), 0, contents.size());
+        ZipArchiveIndex.IndexedEntry previousEntry = previous != null ? previous.getEntry(name) : null;
+        if (previousEntry != null && previousEntry.matches(method, dosTime, crc.getValue(), contents.size(), mode)) {
+            reused.incrementAndGet();
+            return ZipArchiveWriter.Entry.copy(name, mode, dosTime, previous, previousEntry);
+        }
+        if (method == STORED) {
+            return new ZipArchiveWriter.Entry(name, false, mode, dosTime, STORED, crc.getValue(), contents.size(), contents.array(), contents.size());
+        }
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(contents.array(), 0, contents.size());
+            deflater.finish();
+            Buffer compressed = new Buffer(contents.size() / 2 + 64);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(chunk);
+                compressed.write(chunk, 0, length);
+            }
+            return new ZipArchiveWriter.Entry(name, false, mode, dosTime, DEFLATED, crc.getValue(), contents.size(), compressed.array(), compressed.size());
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    private static ZipArchiveWriter.Entry getEntry(Future<ZipArchiveWriter.Entry> result) {
+        try {
+            return result.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted compressing archive entries", e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new GradleException("Failure compressing archive entry", cause);
+        }
+    }
+
+    /**
+     * The entries submitted for compression and not yet written, in the order they are written.
+     */
+    private static class PendingEntries {
+
+        private final ZipArchiveWriter writer;
+        private final Deque<Future<ZipArchiveWriter.Entry>> entries = new ArrayDeque<>();
+        private final Deque<Long> sizes = new ArrayDeque<>();
+        private long size;
+
+        PendingEntries(ZipArchiveWriter writer) {
+            this.writer = writer;
+        }
+
+        void add(Future<ZipArchiveWriter.Entry> entry, long entrySize) {
+            entries.add(entry);
+            sizes.add(entrySize);
+            size += entrySize;
+        }
+
+        /**
+         * Writes the completed entries, and waits for further entries until no more than the given number of entries
+         * and the given total size of the file contents are pending.
+         */
+        void writeCompleted(int maxEntries, long maxSize) throws IOException {
+            while (!entries.isEmpty() && (entries.size() > maxEntries || size > maxSize || entries.peekFirst().isDone())) {
+                writer.write(getEntry(entries.removeFirst()));
+                size -= sizes.removeFirst();
+            }
+        }
+    }
+
+    private static class NullOutputStream extends OutputStream {
+
+        static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+    private static class Buffer extends ByteArrayOutputStream {
+
+        Buffer(long size) {
+            super((int) Math.min(Math.max(size, 32), Integer.MAX_VALUE - 8));
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -20,22 +20,42 @@ import org.gradle.api.GradleException;
 import org.gradle.api.Task;
 import org.gradle.api.logging.Logger;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
-import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+/**
+ * Enables or disables plugins on a running server. The server is checked and the maintenance token read once for
+ * all the plugins, and the requests are sent concurrently, limited to {@link #MAX_CONCURRENT_REQUESTS}. Each request
+ * is limited by the request timeout of the task, so a server that stops responding fails the task.
+ */
 public abstract class PluginAction implements Action<Task> {
 
+    static final int MAX_CONCURRENT_REQUESTS = 4;
+    static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofMinutes(2);
+
     private static final String SUPER_USER_TOKEN_PATH = "system/pluginData/superUser/token.txt";
 
     private final Logger logger;
@@ -44,6 +64,11 @@ public abstract class PluginAction implements Action<Task> {
     protected List<String> unloadedPlugins;
     private final boolean enable;
     private String path;
+    private Duration requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+    private Duration connectTimeout = ServerReadiness.DEFAULT_CONNECT_TIMEOUT;
+    private Duration readyTimeout = Duration.ZERO;
+    private Session session;
+    private boolean sessionOpened;
 
     protected PluginAction(Logger logger, File dataDir, Set<File> plugins, List<String> unloadedPlugins, boolean enable) {
         this.logger = logger;
@@ -70,25 +95,171 @@ public abstract class PluginAction implements Action<Task> {
         ServerConfiguration serverConfigurationTask = (ServerConfiguration) task;
         String host = serverConfigurationTask.getServerHost().get();
         int port = Integer.parseInt(serverConfigurationTask.getServerPort().get());
+        requestTimeout = serverConfigurationTask.getRequestTimeout().getOrElse(DEFAULT_REQUEST_TIMEOUT);
+        connectTimeout = serverConfigurationTask.getConnectTimeout().getOrElse(ServerReadiness.DEFAULT_CONNECT_TIMEOUT);
+        readyTimeout = serverConfigurationTask.getReadyTimeout().getOrElse(Duration.ZERO);
+        List<String> pluginNames = new ArrayList<>();
         plugins.forEach(file -> {
-            if (canExecuteAction(task, file.getName())) {
-                executeAction(file.getName(), host, port);
+            if (isUnchanged(file)) {
+                logger.info("{}: Plugin '{}' is unchanged, skipped reloading", getPath(), file.getName());
+            } else if (canExecuteAction(task, file.getName())) {
+                pluginNames.add(file.getName());
             } else {
                 skipAction(file.getName());
             }
         });
+        resetSession();
+        try {
+            executeActions(pluginNames, host, port);
+        }
+        finally {
+            resetSession();
+        }
+    }
+
+    private void executeActions(List<String> pluginNames, String host, int port) {
+        if (pluginNames.size() <= 1) {
+            pluginNames.forEach(pluginName -> executeAction(pluginName, host, port));
+            return;
+        }
+        // waiting for the server to be ready is not limited by the timeout of the requests
+        if (getSession(host, port) == null) {
+            return;
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        int threads = Math.min(pluginNames.size(), MAX_CONCURRENT_REQUESTS);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "plugin-action-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletableFuture<?>[] requests = pluginNames.stream()
+                .map(pluginName -> CompletableFuture.runAsync(() -> executeAction(pluginName, host, port), executor))
+                .toArray(CompletableFuture[]::new);
+            // each request can wait for the connect and the read timeouts
+            long batches = (pluginNames.size() + threads - 1) / threads;
+            waitFor(CompletableFuture.allOf(requests), requestTimeout.toMillis() * 2 * batches);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void waitFor(CompletableFuture<Void> requests, long timeoutMillis) {
+        try {
+            requests.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted sending plugin requests", e);
+        }
+        catch (TimeoutException e) {
+            throw new GradleException("Timed out waiting for the server to respond to the plugin requests", e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new GradleException("Failure sending plugin request", cause);
+        }
     }
 
     public abstract boolean canExecuteAction(Task task, String pluginName);
 
+    /**
+     * @return true if the plugin is already deployed and has not changed, so it does not need to be reloaded
+     */
+    @SuppressWarnings("UnusedMethodParameter")
+    public boolean isUnchanged(File plugin) {
+        return false;
+    }
+
     public abstract void sendRequest(HttpURLConnection request, String pluginName);
 
     public void executeAction(String pluginName, String host, int port) {
-        if (!isServerAvailable(host, port)) {
-            logger.info("{}: Cannot connect to the server on http://{}:{}.", getPath(), host, port);
+        Session current = getSession(host, port);
+        if (current == null) {
             return;
         }
 
+        URL actionURL = getPluginActionURL(pluginName, host, port);
+        logger.debug("{}: Sending {}", getPath(), actionURL);
+
+        try {
+            HttpURLConnection request = (HttpURLConnection) actionURL.openConnection();
+            try {
+                int timeout = (int) Math.min(requestTimeout.toMillis(), Integer.MAX_VALUE);
+                request.setConnectTimeout(timeout);
+                request.setReadTimeout(timeout);
+                request.setRequestMethod("POST");
+                request.setRequestProperty("Authorization", current.authToken);
+                sendRequest(request, pluginName);
+            }
+            catch (IOException ex) {
+                if (request.getResponseCode() == 401) {
+                    logger.warn("{}: Cannot authenticate with server on http://{}:{} with maintenance token {}.", getPath(), host, port, current.password);
+                    logger.warn("{}: Check the server was started with '-Dteamcity.superUser.token.saveToFile=true' property.", getPath());
+                }
+                logger.warn(getPath() + ": Cannot connect to the server on http://" + host + ":" + port + ": " + request.getResponseCode(), ex);
+            }
+        }
+        catch (IOException e) {
+            logger.warn("{}: Cannot connect to server.", getPath());
+        }
+    }
+
+    /**
+     * Reads the response to a plugin request.
+     *
+     * @throws GradleException if the server does not respond within the request timeout or the response cannot be read
+     */
+    protected String readResponse(HttpURLConnection request) {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8))) {
+            return br.lines().collect(Collectors.joining());
+        }
+        catch (SocketTimeoutException e) {
+            throw new GradleException("Timed out waiting for response from server after " + requestTimeout.getSeconds() + " seconds", e);
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure reading response from server", e);
+        }
+    }
+
+    /**
+     * Returns the session shared by the requests for the plugins, checking the server is available and reading
+     * the maintenance token for the first request.
+     *
+     * @return the session, or null if the server is not available or the maintenance token cannot be read
+     */
+    private synchronized Session getSession(String host, int port) {
+        if (!sessionOpened) {
+            session = openSession(host, port);
+            sessionOpened = true;
+        }
+        return session;
+    }
+
+    private synchronized void resetSession() {
+        session = null;
+        sessionOpened = false;
+    }
+
+    private Session openSession(String host, int port) {
+        if (!isServerAvailable(host, port)) {
+            if (readyTimeout.isZero()) {
+                logger.info("{}: Cannot connect to the server on http://{}:{}.", getPath(), host, port);
+            } else {
+                logger.warn("{}: The server on http://{}:{} was not ready after {} seconds. Cannot reload plugins.", getPath(), host, port, readyTimeout.getSeconds());
+            }
+            return null;
+        }
+
         String password;
         File tokenFile = new File(dataDir, SUPER_USER_TOKEN_PATH);
         if (tokenFile.isFile()) {
@@ -99,54 +270,32 @@ public abstract class PluginAction implements Action<Task> {
             }
             catch (IOException ignored) {
                 logger.warn("{}: Failure reading super user token file", getPath());
-                return;
+                return null;
             }
             catch (NumberFormatException ignored) {
                 logger.warn("{}: Malformed maintenance token", getPath());
-                return;
+                return null;
             }
         } else {
             logger.warn("{}: Maintenance token file does not exist. Cannot reload plugin.", getPath());
             logger.warn("{}: Check the server was started with '-Dteamcity.superUser.token.saveToFile=true' property.", getPath());
-            return;
+            return null;
         }
 
         String authToken = "Basic " + Base64.getEncoder().encodeToString((":" + password).getBytes(StandardCharsets.UTF_8));
-
-        URL actionURL = getPluginActionURL(pluginName, host, port);
-        logger.debug("{}: Sending {}", getPath(), actionURL);
-
-        try {
-            HttpURLConnection request = (HttpURLConnection) actionURL.openConnection();
-            try {
-                request.setRequestMethod("POST");
-                request.setRequestProperty("Authorization", authToken);
-                sendRequest(request, pluginName);
-            }
-            catch (IOException ex) {
-                if (request.getResponseCode() == 401) {
-                    logger.warn("{}: Cannot authenticate with server on http://{}:{} with maintenance token {}.", getPath(), host, port, password);
-                    logger.warn("{}: Check the server was started with '-Dteamcity.superUser.token.saveToFile=true' property.", getPath());
-                }
-                logger.warn(getPath() + ": Cannot connect to the server on http://" + host + ":" + port + ": " + request.getResponseCode(), ex);
-            }
-        }
-        catch (IOException e) {
-            logger.warn("{}: Cannot connect to server.", getPath());
-        }
+        return new Session(password, authToken);
     }
 
     @SuppressWarnings("UnusedMethodParameter")
     public void skipAction(String pluginName) {
     }
 
+    /**
+     * Checks the server is ready to handle requests, waiting for a starting server up to the ready timeout of the task.
+     */
     public boolean isServerAvailable(String host, int port) {
-        try (Socket socket = new Socket(host, port)) {
-            return socket.isConnected();
-        }
-        catch (IOException ignored) {
-            return false;
-        }
+        ServerReadiness readiness = new ServerReadiness(connectTimeout, requestTimeout, readyTimeout);
+        return readiness.waitUntilReady(host, port, logger, getPath());
     }
 
     private URL getPluginActionURL(final String pluginName, String host, int port) {
@@ -158,4 +307,15 @@ public abstract class PluginAction implements Action<Task> {
             throw new GradleException("Failure creating plugin action URL");
         }
     }
+
+    private static class Session {
+
+        private final String password;
+        private final String authToken;
+
+        Session(String password, String authToken) {
+            this.password = password;
+            this.authToken = authToken;
+        }
+    }
 }
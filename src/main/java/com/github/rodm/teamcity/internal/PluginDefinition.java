@@ -20,6 +20,7 @@ import groovy.xml.XmlParser;
 import org.gradle.api.GradleException;
 import org.jetbrains.annotations.NotNull;
 import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
 import java.io.File;
 import java.io.IOException;
@@ -38,10 +39,21 @@ public class PluginDefinition {
         return this.definitionFile.getName();
     }
 
+    protected File getFile() {
+        return this.definitionFile;
+    }
+
     public List<PluginBean> getBeans(boolean offline) throws IOException {
-        XmlParser parser = ValidationSupport.createXmlParser(offline);
+        return getBeans(new XmlReaderPool(offline));
+    }
+
+    /**
+     * @param readers the pool providing the reader used to parse the definition
+     */
+    public List<PluginBean> getBeans(XmlReaderPool readers) throws IOException {
+        XMLReader reader = readers.takeReader();
         try {
-            Node beans = parser.parse(definitionFile);
+            Node beans = new XmlParser(reader).parse(definitionFile);
             return ((List<Node>) beans.get("bean")).stream()
                 .map(this::createPluginBean)
                 .collect(Collectors.toList());
@@ -49,6 +61,9 @@ public class PluginDefinition {
         catch (SAXException e) {
             throw new GradleException("Failure parsing bean definition file", e);
         }
+        finally {
+            readers.releaseReader(reader);
+        }
     }
 
     @NotNull
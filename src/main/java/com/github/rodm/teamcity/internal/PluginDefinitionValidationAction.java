@@ -21,8 +21,14 @@ import org.gradle.api.GradleException;
 import org.gradle.api.Task;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.github.rodm.teamcity.TeamCityPlugin.GRADLE_OFFLINE;
 import static com.github.rodm.teamcity.ValidationMode.FAIL;
@@ -35,19 +41,50 @@ public class PluginDefinitionValidationAction implements Action<Task> {
     private static final String NO_BEAN_CLASSES_WARNING_MESSAGE = "%s: Plugin definition file %s contains no beans.";
     private static final String NO_BEAN_CLASSES_NON_PARSED_WARNING_MESSAGE = "%s: Failed to parse plugin definition file %s: %s";
     private static final String NO_DEFINITION_WARNING_MESSAGE = "%s: No valid plugin definition files were found in META-INF";
+    private static final String NO_BEAN_SUPERTYPE_WARNING_MESSAGE = "%s: Plugin definition file %s defines a bean '%s' but the superclass or interface '%s' was not found.";
+    private static final String NO_BEAN_CONSTRUCTOR_TYPE_WARNING_MESSAGE = "%s: Plugin definition file %s defines a bean '%s' but the constructor parameter type '%s' was not found.";
+    private static final String BEAN_CLASS_NON_READ_WARNING_MESSAGE = "%s: Failed to read bean class '%s': %s";
 
     private final ValidationMode mode;
     private final List<PluginDefinition> definitions;
-    private final Set<String> classes;
+    private final ClassIndex classes;
+    private final BeanClassAnalyzer analyzer;
+    private final XmlReaderCache readerCache;
+    private final List<String> warnings;
     private boolean warningShown;
 
-    public PluginDefinitionValidationAction(ValidationMode mode, List<PluginDefinition> definitions, Set<String> classes) {
+    public PluginDefinitionValidationAction(ValidationMode mode, List<PluginDefinition> definitions, ClassIndex classes) {
+        this(mode, definitions, classes, null);
+    }
+
+    /**
+     * @param analyzer used to check the types referenced by each bean class, or null to only check the class exists
+     */
+    public PluginDefinitionValidationAction(ValidationMode mode, List<PluginDefinition> definitions, ClassIndex classes, BeanClassAnalyzer analyzer) {
+        this(mode, definitions, classes, analyzer, null);
+    }
+
+    /**
+     * @param analyzer used to check the types referenced by each bean class, or null to only check the class exists
+     * @param readerCache the build service providing the readers used to parse the definitions, or null to create
+     * the readers for this validation
+     */
+    public PluginDefinitionValidationAction(ValidationMode mode, List<PluginDefinition> definitions, ClassIndex classes,
+                                            BeanClassAnalyzer analyzer, XmlReaderCache readerCache)
+    {
         this.mode = mode;
         this.definitions = definitions;
         this.classes = classes;
+        this.analyzer = analyzer;
+        this.readerCache = readerCache;
+        this.warnings = new ArrayList<>();
         this.warningShown = false;
     }
 
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
     @Override
     public void execute(Task task) {
         if (mode.equals(IGNORE)) {
@@ -57,8 +94,12 @@ public class PluginDefinitionValidationAction implements Action<Task> {
         if (definitions.isEmpty()) {
             report(task, String.format(NO_DEFINITION_WARNING_MESSAGE, task.getPath()));
         } else {
-            for (PluginDefinition definition : definitions) {
-                validateDefinition(definition, task);
+            Object value = task.getInputs().getProperties().getOrDefault(GRADLE_OFFLINE, false);
+            boolean offline = Boolean.parseBoolean(value.toString());
+            XmlReaderPool readers = readerCache != null ? readerCache.getReaders(offline) : new XmlReaderPool(offline);
+            List<Future<List<PluginBean>>> results = parseDefinitions(readers);
+            for (int i = 0; i < definitions.size(); i++) {
+                validateDefinition(definitions.get(i), results.get(i), task);
             }
         }
 
@@ -67,12 +108,59 @@ public class PluginDefinitionValidationAction implements Action<Task> {
         }
     }
 
-    private void validateDefinition(PluginDefinition definition, Task task) {
-        Object value = task.getInputs().getProperties().getOrDefault(GRADLE_OFFLINE, false);
-        boolean offline = Boolean.parseBoolean(value.toString());
+    /**
+     * Parses the definitions concurrently using up to one thread per processor. The results are
+     * returned in the order of the definitions so warnings are reported in a deterministic order.
+     */
+    private List<Future<List<PluginBean>>> parseDefinitions(XmlReaderPool readers) {
+        List<Future<List<PluginBean>>> results = new ArrayList<>();
+        int threads = Math.min(definitions.size(), Runtime.getRuntime().availableProcessors());
+        if (threads <= 1) {
+            for (PluginDefinition definition : definitions) {
+                FutureTask<List<PluginBean>> result = new FutureTask<>(() -> definition.getBeans(readers));
+                result.run();
+                results.add(result);
+            }
+            return results;
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "plugin-definition-parser-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (PluginDefinition definition : definitions) {
+                results.add(executor.submit(() -> definition.getBeans(readers)));
+            }
+            for (Future<List<PluginBean>> result : results) {
+                waitFor(result);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    private static void waitFor(Future<?> result) {
+        try {
+            result.get();
+        }
+        catch (ExecutionException e) {
+            // reported when the definition is validated
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted parsing plugin definition files", e);
+        }
+    }
+
+    private void validateDefinition(PluginDefinition definition, Future<List<PluginBean>> result, Task task) {
         List<PluginBean> beans;
         try {
-            beans = definition.getBeans(offline);
+            beans = getBeans(result);
         }
         catch (IOException e) {
             report(task, String.format(NO_BEAN_CLASSES_NON_PARSED_WARNING_MESSAGE, task.getPath(), definition.getName(), e.getMessage()), e);
@@ -86,18 +174,58 @@ public class PluginDefinitionValidationAction implements Action<Task> {
                 String className = bean.getClassName();
                 if (className == null) {
                     report(task, String.format(NO_BEAN_CLASS_ATTRIBUTE_WARNING_MESSAGE, task.getPath(), definition.getName()));
-                } else {
-                    String fqcn = className.replace(".", "/") + ".class";
-                    if (!classes.contains(fqcn)) {
-                        report(task, String.format(NO_BEAN_CLASS_WARNING_MESSAGE, task.getPath(), definition.getName(), className));
-                    }
+                } else if (!classes.contains(className)) {
+                    report(task, String.format(NO_BEAN_CLASS_WARNING_MESSAGE, task.getPath(), definition.getName(), className));
+                } else if (analyzer != null) {
+                    analyzeBeanClass(definition, className, task);
                 }
             }
         }
     }
 
+    private void analyzeBeanClass(PluginDefinition definition, String className, Task task) {
+        List<BeanClassAnalyzer.MissingType> missingTypes;
+        try {
+            missingTypes = analyzer.analyze(className);
+        }
+        catch (IOException e) {
+            report(task, String.format(BEAN_CLASS_NON_READ_WARNING_MESSAGE, task.getPath(), className, e.getMessage()), e);
+            return;
+        }
+        for (BeanClassAnalyzer.MissingType missingType : missingTypes) {
+            String message = missingType.getReference() == BeanClassAnalyzer.Reference.SUPERTYPE
+                ? NO_BEAN_SUPERTYPE_WARNING_MESSAGE
+                : NO_BEAN_CONSTRUCTOR_TYPE_WARNING_MESSAGE;
+            report(task, String.format(message, task.getPath(), definition.getName(), className, missingType.getName()));
+        }
+    }
+
+    private static List<PluginBean> getBeans(Future<List<PluginBean>> result) throws IOException {
+        try {
+            return result.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted parsing plugin definition files", e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new GradleException("Failure parsing plugin definition file", cause);
+        }
+    }
+
     private void report(Task task, String message, Object... objects) {
         task.getLogger().warn(message, objects);
+        warnings.add(message);
         warningShown = true;
     }
 }
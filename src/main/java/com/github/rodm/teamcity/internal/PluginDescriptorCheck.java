@@ -1,5 +1,5 @@
 /*
- * Copyright 2020 Rod MacKenzie
+ * Copyright 2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,21 +15,12 @@
  */
 package com.github.rodm.teamcity.internal;
 
-import org.gradle.api.Action;
-import org.gradle.api.file.FileCopyDetails;
+import org.gradle.api.Task;
 
-import java.util.List;
-
-public class PluginDefinitionCollectorAction implements Action<FileCopyDetails> {
-
-    private final List<PluginDefinition> pluginDefinitions;
-
-    public PluginDefinitionCollectorAction(List<PluginDefinition> pluginDefinitions) {
-        this.pluginDefinitions = pluginDefinitions;
-    }
+/**
+ * A check of the plugin descriptor run against the contents collected by the descriptor validation pass.
+ */
+public interface PluginDescriptorCheck {
 
-    @Override
-    public void execute(FileCopyDetails fileCopyDetails) {
-        pluginDefinitions.add(new PluginDefinition(fileCopyDetails.getFile()));
-    }
+    void check(Task task, PluginDescriptorContents contents);
 }
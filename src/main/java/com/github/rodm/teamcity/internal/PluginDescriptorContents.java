@@ -0,0 +1,156 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.validation.Schema;
+import javax.xml.validation.ValidatorHandler;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The values of a plugin descriptor used by the descriptor checks, collected in a single SAX pass
+ * that can also validate the descriptor against a schema.
+ */
+public class PluginDescriptorContents {
+
+    public static final String NAME = "info/name";
+    public static final String DISPLAY_NAME = "info/display-name";
+    public static final String VERSION = "info/version";
+    public static final String DESCRIPTION = "info/description";
+    public static final String VENDOR_NAME = "info/vendor/name";
+    public static final String VENDOR_URL = "info/vendor/url";
+
+    private static final Set<String> VALUE_PATHS = new HashSet<>(Arrays.asList(
+        NAME, DISPLAY_NAME, VERSION, DESCRIPTION, VENDOR_NAME, VENDOR_URL));
+
+    private final Map<String, String> values;
+    private final List<String> executableFiles;
+
+    private PluginDescriptorContents(Map<String, String> values, List<String> executableFiles) {
+        this.values = values;
+        this.executableFiles = executableFiles;
+    }
+
+    public String getValue(String path) {
+        return values.getOrDefault(path, "");
+    }
+
+    public List<String> getExecutableFiles() {
+        return executableFiles;
+    }
+
+    public static PluginDescriptorContents read(File descriptorFile, XmlReaderPool readers) throws IOException, SAXException {
+        return read(descriptorFile, readers, null, null);
+    }
+
+    /**
+     * Reads the descriptor, validating it against the schema in the same pass when a schema is given.
+     *
+     * @param descriptorFile the plugin descriptor
+     * @param readers the pool providing the reader used to parse the descriptor
+     * @param schema the schema to validate against, or null to skip schema validation
+     * @param errorHandler the handler receiving parse and validation errors, or null to use the defaults
+     * @return the collected descriptor contents
+     */
+    public static PluginDescriptorContents read(File descriptorFile, XmlReaderPool readers, Schema schema, ErrorHandler errorHandler)
+        throws IOException, SAXException
+    {
+        ContentsHandler handler = new ContentsHandler();
+        XMLReader reader = readers.takeReader();
+        try (InputStream in = Files.newInputStream(descriptorFile.toPath())) {
+            if (schema != null) {
+                ValidatorHandler validatorHandler = schema.newValidatorHandler();
+                validatorHandler.setErrorHandler(errorHandler);
+                validatorHandler.setContentHandler(handler);
+                reader.setContentHandler(validatorHandler);
+            } else {
+                reader.setContentHandler(handler);
+            }
+            reader.setErrorHandler(errorHandler);
+            InputSource source = new InputSource(in);
+            source.setSystemId(descriptorFile.toURI().toString());
+            reader.parse(source);
+        }
+        finally {
+            readers.releaseReader(reader);
+        }
+        return new PluginDescriptorContents(handler.values, Collections.unmodifiableList(handler.executableFiles));
+    }
+
+    private static class ContentsHandler extends DefaultHandler {
+
+        private final Map<String, String> values = new HashMap<>();
+        private final List<String> executableFiles = new ArrayList<>();
+        private final Deque<String> path = new ArrayDeque<>();
+        private final StringBuilder text = new StringBuilder();
+        private String valuePath;
+        private int valueDepth;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            // paths are relative to the root element
+            String parent = path.peekLast();
+            String current = parent == null ? "" : parent.isEmpty() ? localName : parent + "/" + localName;
+            path.addLast(current);
+            if (valuePath == null && VALUE_PATHS.contains(current)) {
+                valuePath = current;
+                valueDepth = path.size();
+                text.setLength(0);
+            }
+            if ("include".equals(localName)) {
+                String name = attributes.getValue("name");
+                if (name != null) {
+                    executableFiles.add(name);
+                }
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (valuePath != null && path.size() == valueDepth) {
+                values.merge(valuePath, text.toString(), String::concat);
+                valuePath = null;
+            }
+            path.removeLast();
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (valuePath != null) {
+                text.append(ch, start, length);
+            }
+        }
+    }
+}
@@ -15,62 +15,57 @@
  */
 package com.github.rodm.teamcity.internal;
 
-import groovy.namespace.QName;
-import groovy.util.NodeList;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.Task;
-
-import groovy.util.Node;
-import groovy.xml.XmlParser;
+import org.gradle.api.provider.Provider;
 import org.xml.sax.SAXException;
 
+import java.io.File;
 import java.io.IOException;
 
-public class PluginDescriptorContentsValidationAction implements Action<Task> {
+import static com.github.rodm.teamcity.internal.PluginDescriptorContents.DESCRIPTION;
+import static com.github.rodm.teamcity.internal.PluginDescriptorContents.DISPLAY_NAME;
+import static com.github.rodm.teamcity.internal.PluginDescriptorContents.NAME;
+import static com.github.rodm.teamcity.internal.PluginDescriptorContents.VENDOR_NAME;
+import static com.github.rodm.teamcity.internal.PluginDescriptorContents.VENDOR_URL;
+import static com.github.rodm.teamcity.internal.PluginDescriptorContents.VERSION;
+
+public class PluginDescriptorContentsValidationAction implements Action<Task>, PluginDescriptorCheck {
 
     private static final String EMPTY_VALUE_WARNING_MESSAGE = "{}: Plugin descriptor value for {} must not be empty.";
 
+    private final Provider<XmlReaderCache> readerCache;
+
+    public PluginDescriptorContentsValidationAction(Provider<XmlReaderCache> readerCache) {
+        this.readerCache = readerCache;
+    }
+
     @Override
     public void execute(Task task) {
         AbstractPluginTask pluginTask = (AbstractPluginTask) task;
-        XmlParser parser = ValidationSupport.createXmlParser();
+        File descriptorFile = pluginTask.getDescriptor().get().getAsFile();
         try {
-            Node descriptor = parser.parse(pluginTask.getDescriptor().get().getAsFile());
-            NodeList info = descriptor.getAt(QName.valueOf("info"));
-
-            final String path = task.getPath();
-            NodeList name = info.getAt("name");
-            if (name.text().trim().isEmpty()) {
-                task.getLogger().warn(EMPTY_VALUE_WARNING_MESSAGE, path, "name");
-            }
-            NodeList display = info.getAt("display-name");
-            if (display.text().trim().isEmpty()) {
-                task.getLogger().warn(EMPTY_VALUE_WARNING_MESSAGE, path, "display name");
-            }
-            NodeList version = info.getAt("version");
-            if (version.text().trim().isEmpty()) {
-                task.getLogger().warn(EMPTY_VALUE_WARNING_MESSAGE, path, "version");
-            }
-
-            NodeList vendor = info.getAt("vendor");
-            NodeList vendorName = vendor.getAt("name");
-            if (vendorName.text().trim().isEmpty()) {
-                task.getLogger().warn(EMPTY_VALUE_WARNING_MESSAGE, path, "vendor name");
-            }
-
-            NodeList description = info.getAt("description");
-            if (description.text().trim().isEmpty()) {
-                task.getLogger().warn(EMPTY_VALUE_WARNING_MESSAGE, path, "description");
-            }
-
-            NodeList vendorUrl = vendor.getAt("url");
-            if (vendorUrl.text().trim().isEmpty()) {
-                task.getLogger().warn(EMPTY_VALUE_WARNING_MESSAGE, path, "vendor url");
-            }
+            check(task, PluginDescriptorContents.read(descriptorFile, readerCache.get().getReaders(false)));
         }
         catch (IOException | SAXException e) {
             throw new GradleException("Failure parsing descriptor", e);
         }
     }
+
+    @Override
+    public void check(Task task, PluginDescriptorContents contents) {
+        checkNotEmpty(task, contents, NAME, "name");
+        checkNotEmpty(task, contents, DISPLAY_NAME, "display name");
+        checkNotEmpty(task, contents, VERSION, "version");
+        checkNotEmpty(task, contents, VENDOR_NAME, "vendor name");
+        checkNotEmpty(task, contents, DESCRIPTION, "description");
+        checkNotEmpty(task, contents, VENDOR_URL, "vendor url");
+    }
+
+    private static void checkNotEmpty(Task task, PluginDescriptorContents contents, String path, String field) {
+        if (contents.getValue(path).trim().isEmpty()) {
+            task.getLogger().warn(EMPTY_VALUE_WARNING_MESSAGE, task.getPath(), field);
+        }
+    }
 }
@@ -20,9 +20,13 @@ import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class PluginDescriptorErrorHandler implements ErrorHandler {
 
     private final Task task;
+    private final List<String> messages = new ArrayList<>();
 
     public PluginDescriptorErrorHandler(Task task) {
         this.task = task;
@@ -44,6 +48,11 @@ public class PluginDescriptorErrorHandler implements ErrorHandler {
     }
 
     private void outputMessage(SAXParseException exception) {
-        task.getLogger().warn(task.getPath() + ": Plugin descriptor is invalid: " + exception.getMessage());
+        messages.add(task.getPath() + ": Plugin descriptor is invalid: " + exception.getMessage());
+    }
+
+    public void outputMessages() {
+        messages.forEach(message -> task.getLogger().warn(message));
+        messages.clear();
     }
 }
@@ -18,55 +18,56 @@ package com.github.rodm.teamcity.internal;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.Task;
+import org.gradle.api.provider.Provider;
 import org.xml.sax.SAXException;
-import org.xml.sax.SAXNotRecognizedException;
-import org.xml.sax.SAXNotSupportedException;
 
-import javax.xml.XMLConstants;
-import javax.xml.transform.stream.StreamSource;
-import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
-import javax.xml.validation.Validator;
+import java.io.File;
 import java.io.IOException;
-import java.io.Reader;
-import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
+/**
+ * Validates the plugin descriptor against the schema and runs the descriptor checks using a single
+ * parse of the descriptor. Warnings are output once the pass has completed.
+ */
 public class PluginDescriptorValidationAction implements Action<Task> {
 
     private final String name;
+    private final Provider<SchemaCache> schemaCache;
+    private final Provider<XmlReaderCache> readerCache;
+    private final List<PluginDescriptorCheck> checks;
 
-    public PluginDescriptorValidationAction(String name) {
+    public PluginDescriptorValidationAction(String name, Provider<SchemaCache> schemaCache,
+                                            Provider<XmlReaderCache> readerCache, PluginDescriptorCheck... checks)
+    {
         this.name = name;
+        this.schemaCache = schemaCache;
+        this.readerCache = readerCache;
+        this.checks = Collections.unmodifiableList(Arrays.asList(checks));
+    }
+
+    public List<PluginDescriptorCheck> getChecks() {
+        return checks;
     }
 
     @Override
     public void execute(Task task) {
         AbstractPluginTask pluginTask = (AbstractPluginTask) task;
-        Path descriptorPath = pluginTask.getDescriptor().getAsFile().get().toPath();
-        try (Reader reader = Files.newBufferedReader(descriptorPath)) {
-            SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-            setProperty(factory, XMLConstants.ACCESS_EXTERNAL_SCHEMA);
-            setProperty(factory, XMLConstants.ACCESS_EXTERNAL_DTD);
-            URL url = this.getClass().getResource("/schema/" + name);
-            Schema schema = factory.newSchema(url);
-            Validator validator = schema.newValidator();
-            PluginDescriptorErrorHandler errorHandler = new PluginDescriptorErrorHandler(task);
-            validator.setErrorHandler(errorHandler);
-            validator.validate(new StreamSource(reader));
+        File descriptorFile = pluginTask.getDescriptor().getAsFile().get();
+        PluginDescriptorErrorHandler errorHandler = new PluginDescriptorErrorHandler(task);
+        PluginDescriptorContents contents;
+        try {
+            XmlReaderPool readers = readerCache.get().getReaders(false);
+            contents = PluginDescriptorContents.read(descriptorFile, readers, schemaCache.get().getSchema(name), errorHandler);
         }
         catch (IOException | SAXException e) {
+            errorHandler.outputMessages();
             throw new GradleException("Failure validating descriptor", e);
         }
-    }
-
-    private static void setProperty(SchemaFactory factory, String uri) {
-        try {
-            factory.setProperty(uri, "");
-        }
-        catch (SAXNotRecognizedException | SAXNotSupportedException e) {
-            // ignore
+        errorHandler.outputMessages();
+        for (PluginDescriptorCheck check : checks) {
+            check.check(task, contents);
         }
     }
 }
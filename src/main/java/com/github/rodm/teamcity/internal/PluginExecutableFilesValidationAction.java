@@ -15,54 +15,112 @@
  */
 package com.github.rodm.teamcity.internal;
 
-import groovy.util.Node;
-import groovy.xml.XmlParser;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.Task;
-import org.gradle.api.file.FileCopyDetails;
+import org.gradle.api.provider.Provider;
 import org.xml.sax.SAXException;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.regex.Pattern;
 
-public class PluginExecutableFilesValidationAction implements Action<Task> {
+public class PluginExecutableFilesValidationAction implements Action<Task>, PluginDescriptorCheck {
 
     private static final String MISSING_EXECUTABLE_FILE_WARNING = "{}: Executable file {} is missing.";
 
-    private final Set<FileCopyDetails> files;
+    private final Set<String> paths;
+    private final Provider<XmlReaderCache> readerCache;
 
-    public PluginExecutableFilesValidationAction(Set<FileCopyDetails> files) {
-        this.files = files;
+    public PluginExecutableFilesValidationAction(Set<String> paths, Provider<XmlReaderCache> readerCache) {
+        this.paths = paths;
+        this.readerCache = readerCache;
     }
 
     @Override
     public void execute(Task task) {
         AbstractPluginTask pluginTask = (AbstractPluginTask) task;
-        List<String> paths = files.stream()
-            .map(FileCopyDetails::getPath)
-            .collect(Collectors.toList());
+        File descriptorFile = pluginTask.getDescriptor().get().getAsFile();
+        List<String> executableFiles = getExecutableFiles(descriptorFile, readerCache.get().getReaders(false));
+        checkExecutableFiles(task, executableFiles);
+    }
 
-        List<String> executableFiles = getExecutableFiles(pluginTask.getDescriptor().get().getAsFile());
+    @Override
+    public void check(Task task, PluginDescriptorContents contents) {
+        checkExecutableFiles(task, contents.getExecutableFiles());
+    }
+
+    private void checkExecutableFiles(Task task, List<String> executableFiles) {
+        Map<String, Pattern> patterns = new LinkedHashMap<>();
         for (String executableFile : executableFiles) {
-            if (!paths.contains(executableFile)) {
+            if (isPattern(executableFile)) {
+                patterns.put(executableFile, toPattern(executableFile));
+            } else if (!paths.contains(executableFile)) {
+                task.getLogger().warn(MISSING_EXECUTABLE_FILE_WARNING, task.getPath(), executableFile);
+            }
+        }
+
+        if (!patterns.isEmpty()) {
+            for (String path : paths) {
+                patterns.values().removeIf(pattern -> pattern.matcher(path).matches());
+                if (patterns.isEmpty()) {
+                    break;
+                }
+            }
+            for (String executableFile : patterns.keySet()) {
                 task.getLogger().warn(MISSING_EXECUTABLE_FILE_WARNING, task.getPath(), executableFile);
             }
         }
     }
 
-    public static List<String> getExecutableFiles(File descriptorFile) {
-        XmlParser parser = ValidationSupport.createXmlParser();
+    static boolean isPattern(String name) {
+        return name.indexOf('*') >= 0 || name.indexOf('?') >= 0;
+    }
+
+    /**
+     * Converts an Ant style include name to a regular expression. '**' matches any number of
+     * directories, '*' matches within a single path segment and '?' matches a single character.
+     */
+    static Pattern toPattern(String name) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != '*' && c != '?') {
+                literal.append(c);
+                continue;
+            }
+            if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+            }
+            if (c == '?') {
+                regex.append("[^/]");
+            } else if (i + 1 < name.length() && name.charAt(i + 1) == '*') {
+                i++;
+                if (i + 1 < name.length() && name.charAt(i + 1) == '/') {
+                    i++;
+                    regex.append("(?:.*/)?");
+                } else {
+                    regex.append(".*");
+                }
+            } else {
+                regex.append("[^/]*");
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    public static List<String> getExecutableFiles(File descriptorFile, XmlReaderPool readers) {
         try {
-            Node descriptor = parser.parse(descriptorFile);
-            List<Node> nodes = descriptor.breadthFirst();
-            return nodes.stream()
-                .filter(node -> node.name().equals("include"))
-                .map(node -> (String) node.attribute("name"))
-                .collect(Collectors.toList());
+            return PluginDescriptorContents.read(descriptorFile, readers).getExecutableFiles();
         }
         catch (IOException | SAXException e) {
             throw new GradleException("Failure parsing descriptor", e);
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import com.github.rodm.teamcity.ValidationMode;
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.Task;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.github.rodm.teamcity.ValidationMode.FAIL;
+import static com.github.rodm.teamcity.ValidationMode.IGNORE;
+
+/**
+ * Checks the libraries packaged in a plugin for classes found in more than one library, packages split
+ * across libraries and libraries that may be different versions of the same library.
+ */
+public class PluginLibrariesValidationAction implements Action<Task> {
+
+    private static final String DUPLICATE_CLASSES_WARNING_MESSAGE = "%s: Libraries %s and %s contain duplicate classes (%d), including '%s'.";
+    private static final String SPLIT_PACKAGE_WARNING_MESSAGE = "%s: Package '%s' is split across the libraries %s.";
+    private static final String LIBRARY_VERSIONS_WARNING_MESSAGE = "%s: Libraries %s and %s may be different versions of the same library.";
+
+    private static final Pattern VERSIONED_NAME = Pattern.compile("(.+?)-\\d[^/]*\\.jar");
+
+    private final ValidationMode mode;
+    private final List<File> libraries;
+    private final List<List<String>> classes;
+    private final List<String> warnings = new ArrayList<>();
+
+    /**
+     * @param libraries the libraries in the order they are packaged
+     * @param classes the names of the classes in each library
+     */
+    public PluginLibrariesValidationAction(ValidationMode mode, List<File> libraries, List<List<String>> classes) {
+        this.mode = mode;
+        this.libraries = libraries;
+        this.classes = classes;
+    }
+
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    @Override
+    public void execute(Task task) {
+        if (mode.equals(IGNORE)) {
+            return;
+        }
+
+        checkLibraryNames(task);
+        checkClasses(task);
+
+        if (mode.equals(FAIL) && !warnings.isEmpty()) {
+            throw new GradleException("Plugin libraries validation failed");
+        }
+    }
+
+    private void checkLibraryNames(Task task) {
+        Map<String, Integer> names = new HashMap<>();
+        for (int i = 0; i < libraries.size(); i++) {
+            String name = libraries.get(i).getName();
+            Integer previous = names.putIfAbsent(libraryBaseName(name), i);
+            if (previous != null) {
+                report(task, String.format(LIBRARY_VERSIONS_WARNING_MESSAGE, task.getPath(), libraries.get(previous).getName(), name));
+            }
+        }
+    }
+
+    private void checkClasses(Task task) {
+        // the first library containing each class, and the duplicates found for each pair of libraries
+        Map<String, Integer> owners = new HashMap<>();
+        Map<Long, Duplicates> duplicates = new TreeMap<>();
+        for (int i = 0; i < classes.size(); i++) {
+            for (String name : classes.get(i)) {
+                Integer owner = owners.putIfAbsent(name, i);
+                if (owner != null && owner != i) {
+                    long pair = (long) owner * libraries.size() + i;
+                    duplicates.computeIfAbsent(pair, key -> new Duplicates(name)).count++;
+                }
+            }
+        }
+
+        for (Map.Entry<Long, Duplicates> entry : duplicates.entrySet()) {
+            int first = (int) (entry.getKey() / libraries.size());
+            int second = (int) (entry.getKey() % libraries.size());
+            Duplicates found = entry.getValue();
+            report(task, String.format(DUPLICATE_CLASSES_WARNING_MESSAGE, task.getPath(),
+                libraries.get(first).getName(), libraries.get(second).getName(), found.count, found.example.replace('/', '.')));
+        }
+
+        // a library contributing only duplicate classes to a package does not split the package, the
+        // duplicates are already reported
+        for (Map.Entry<String, Set<Integer>> entry : uniqueClassPackages().entrySet()) {
+            if (entry.getValue().size() > 1) {
+                List<String> names = new ArrayList<>();
+                for (int i : entry.getValue()) {
+                    names.add(libraries.get(i).getName());
+                }
+                report(task, String.format(SPLIT_PACKAGE_WARNING_MESSAGE, task.getPath(), entry.getKey().replace('/', '.'), String.join(", ", names)));
+            }
+        }
+    }
+
+    /**
+     * Returns the libraries containing a class found in only one library, by package.
+     */
+    private Map<String, Set<Integer>> uniqueClassPackages() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (List<String> names : classes) {
+            for (String name : names) {
+                counts.merge(name, 1, Integer::sum);
+            }
+        }
+        Map<String, Set<Integer>> result = new TreeMap<>();
+        for (int i = 0; i < classes.size(); i++) {
+            for (String name : classes.get(i)) {
+                if (counts.get(name) == 1) {
+                    result.computeIfAbsent(packageName(name), key -> new TreeSet<>()).add(i);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the name of the library without the version, or the name when it does not include a version
+     */
+    public static String libraryBaseName(String name) {
+        Matcher matcher = VERSIONED_NAME.matcher(name);
+        return matcher.matches() ? matcher.group(1) : name;
+    }
+
+    private static String packageName(String className) {
+        int index = className.lastIndexOf('/');
+        return index < 0 ? "" : className.substring(0, index);
+    }
+
+    private void report(Task task, String message) {
+        task.getLogger().warn(message);
+        warnings.add(message);
+    }
+
+    private static class Duplicates {
+
+        private final String example;
+        private int count;
+
+        Duplicates(String example) {
+            this.example = example;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+
+import javax.xml.XMLConstants;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Build service holding the compiled plugin descriptor schemas. A {@link Schema} is thread-safe,
+ * so each schema is compiled once and shared by all the plugin tasks in the build.
+ */
+public abstract class SchemaCache implements BuildService<BuildServiceParameters.None> {
+
+    public static final String SCHEMA_CACHE_SERVICE_NAME = "teamcitySchemaCache";
+
+    private final Map<String, Schema> schemas = new ConcurrentHashMap<>();
+
+    public static Provider<SchemaCache> register(Gradle gradle) {
+        return gradle.getSharedServices().registerIfAbsent(SCHEMA_CACHE_SERVICE_NAME, SchemaCache.class, spec -> {});
+    }
+
+    /**
+     * Returns the compiled schema, compiling it on first use.
+     *
+     * @param name the path of the schema relative to the {@code /schema} resource directory
+     * @return the compiled schema
+     */
+    public Schema getSchema(String name) {
+        return schemas.computeIfAbsent(name, SchemaCache::compile);
+    }
+
+    private static Schema compile(String name) {
+        try {
+            SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            setProperty(factory, XMLConstants.ACCESS_EXTERNAL_SCHEMA);
+            setProperty(factory, XMLConstants.ACCESS_EXTERNAL_DTD);
+            URL url = SchemaCache.class.getResource("/schema/" + name);
+            return factory.newSchema(url);
+        }
+        catch (SAXException e) {
+            throw new GradleException("Failure compiling descriptor schema " + name, e);
+        }
+    }
+
+    private static void setProperty(SchemaFactory factory, String uri) {
+        try {
+            factory.setProperty(uri, "");
+        }
+        catch (SAXNotRecognizedException | SAXNotSupportedException e) {
+            // ignore
+        }
+    }
+}
@@ -17,6 +17,9 @@ package com.github.rodm.teamcity.internal;
 
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+
+import java.time.Duration;
 
 public interface ServerConfiguration {
 
@@ -25,4 +28,22 @@ public interface ServerConfiguration {
 
     @Input
     Property<String> getServerPort();
+
+    /**
+     * @return the maximum time to wait to connect to the server and for the response to each plugin request
+     */
+    @Internal
+    Property<Duration> getRequestTimeout();
+
+    /**
+     * @return the maximum time to wait to connect to the server when checking the server is ready
+     */
+    @Internal
+    Property<Duration> getConnectTimeout();
+
+    /**
+     * @return the maximum time to wait for a starting server to be ready, zero checks the server once
+     */
+    @Internal
+    Property<Duration> getReadyTimeout();
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.gradle.api.logging.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for a TeamCity Server to be ready to handle requests. The server is ready when it responds to an HTTP request
+ * without a server error, a starting server responds with 503 until it has initialised. The server is polled with
+ * an exponential backoff until it is ready or the ready timeout has elapsed, a ready timeout of zero checks the
+ * server once.
+ */
+public class ServerReadiness {
+
+    static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    static final long INITIAL_DELAY_MILLIS = 250;
+    static final long MAX_DELAY_MILLIS = 5000;
+
+    private static final String READY_PATH = "/login.html";
+
+    private final Duration connectTimeout;
+    private final Duration readTimeout;
+    private final Duration readyTimeout;
+
+    public ServerReadiness(Duration connectTimeout, Duration readTimeout, Duration readyTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.readyTimeout = readyTimeout;
+    }
+
+    /**
+     * @return true if the server is ready before the ready timeout elapsed
+     */
+    public boolean waitUntilReady(String host, int port, Logger logger, String path) {
+        long deadline = System.nanoTime() + readyTimeout.toNanos();
+        long delay = INITIAL_DELAY_MILLIS;
+        while (true) {
+            if (isReady(host, port)) {
+                return true;
+            }
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return false;
+            }
+            long wait = Math.min(delay, remaining);
+            logger.info("{}: TeamCity Server on http://{}:{} is not ready, retrying in {} ms", path, host, port, wait);
+            if (!sleep(wait)) {
+                return false;
+            }
+            delay = Math.min(delay * 2, MAX_DELAY_MILLIS);
+        }
+    }
+
+    boolean isReady(String host, int port) {
+        try {
+            HttpURLConnection request = (HttpURLConnection) new URL("http://" + host + ":" + port + READY_PATH).openConnection();
+            request.setConnectTimeout(toMillis(connectTimeout));
+            request.setReadTimeout(toMillis(readTimeout));
+            request.setInstanceFollowRedirects(false);
+            try {
+                return request.getResponseCode() < HttpURLConnection.HTTP_INTERNAL_ERROR;
+            }
+            finally {
+                discard(request);
+            }
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    // reads the rest of the response so the connection can be reused
+    private static void discard(HttpURLConnection request) {
+        try (InputStream in = request.getErrorStream() != null ? request.getErrorStream() : request.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) != -1) {
+                // discard
+            }
+        }
+        catch (IOException ignored) {
+            // the response body is not needed
+        }
+    }
+
+    private static int toMillis(Duration duration) {
+        return (int) Math.min(duration.toMillis(), Integer.MAX_VALUE);
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
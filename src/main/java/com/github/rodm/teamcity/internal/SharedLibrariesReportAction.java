@@ -0,0 +1,155 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import com.github.rodm.teamcity.tasks.ServerPlugin;
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reports the libraries packaged in both the server plugin and the agent plugins it contains, and the
+ * space used by the duplicates, when info logging is enabled. Libraries are compared by size first, and
+ * then by a SHA-256 hash of their contents, so only libraries with the same size are read.
+ */
+public class SharedLibrariesReportAction implements Action<Task> {
+
+    static final String SHARED_LIBRARY_MESSAGE = "{}: Library {} is also packaged in the agent plugin {} as {}";
+    static final String SHARED_LIBRARIES_SUMMARY = "{}: {} libraries are packaged in both the server and agent plugins, duplicating {} bytes";
+
+    private static final String JAR_SUFFIX = ".jar";
+    private static final String ZIP_SUFFIX = ".zip";
+    private static final String AGENT_LIBRARY_PREFIX = "lib/";
+
+    @Override
+    public void execute(Task task) {
+        if (!task.getLogger().isInfoEnabled()) {
+            return;
+        }
+        ServerPlugin serverPlugin = (ServerPlugin) task;
+        List<SharedLibrary> shared = findSharedLibraries(serverPlugin.getServer().getFiles(), serverPlugin.getAgent().getFiles());
+        long bytes = 0;
+        for (SharedLibrary library : shared) {
+            task.getLogger().info(SHARED_LIBRARY_MESSAGE, task.getPath(), library.getName(), library.getAgentArchive(), library.getAgentPath());
+            bytes += library.getSize();
+        }
+        if (!shared.isEmpty()) {
+            task.getLogger().info(SHARED_LIBRARIES_SUMMARY, task.getPath(), shared.size(), bytes);
+        }
+    }
+
+    /**
+     * Finds the server libraries with the same contents as a library in the {@code lib} directory of an agent plugin.
+     *
+     * @param serverFiles the files packaged in the server directory
+     * @param agentFiles the files packaged in the agent directory, only zip files are read
+     * @return the shared libraries, in the order of the agent plugins and their entries
+     */
+    public static List<SharedLibrary> findSharedLibraries(Iterable<File> serverFiles, Iterable<File> agentFiles) {
+        Map<Long, List<File>> serverLibraries = new HashMap<>();
+        for (File file : serverFiles) {
+            if (file.isFile() && file.getName().endsWith(JAR_SUFFIX)) {
+                serverLibraries.computeIfAbsent(file.length(), size -> new ArrayList<>()).add(file);
+            }
+        }
+
+        List<SharedLibrary> shared = new ArrayList<>();
+        if (serverLibraries.isEmpty()) {
+            return shared;
+        }
+        Map<File, byte[]> serverHashes = new HashMap<>();
+        for (File archive : agentFiles) {
+            if (!archive.isFile() || !archive.getName().endsWith(ZIP_SUFFIX)) {
+                continue;
+            }
+            try (ZipFile zipFile = new ZipFile(archive)) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    List<File> candidates = serverLibraries.get(entry.getSize());
+                    if (candidates == null || !entry.getName().startsWith(AGENT_LIBRARY_PREFIX) || !entry.getName().endsWith(JAR_SUFFIX)) {
+                        continue;
+                    }
+                    byte[] hash;
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        hash = ArchiveManifest.hash(in);
+                    }
+                    for (File candidate : candidates) {
+                        byte[] candidateHash = serverHashes.get(candidate);
+                        if (candidateHash == null) {
+                            try (InputStream in = Files.newInputStream(candidate.toPath())) {
+                                candidateHash = ArchiveManifest.hash(in);
+                            }
+                            serverHashes.put(candidate, candidateHash);
+                        }
+                        if (Arrays.equals(hash, candidateHash)) {
+                            shared.add(new SharedLibrary(candidate.getName(), archive.getName(), entry.getName(), entry.getSize()));
+                            break;
+                        }
+                    }
+                }
+            }
+            catch (IOException e) {
+                throw new GradleException("Failure reading agent plugin " + archive, e);
+            }
+        }
+        return shared;
+    }
+
+    public static class SharedLibrary {
+
+        private final String name;
+        private final String agentArchive;
+        private final String agentPath;
+        private final long size;
+
+        SharedLibrary(String name, String agentArchive, String agentPath, long size) {
+            this.name = name;
+            this.agentArchive = agentArchive;
+            this.agentPath = agentPath;
+            this.size = size;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getAgentArchive() {
+            return agentArchive;
+        }
+
+        public String getAgentPath() {
+            return agentPath;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCopyDetails;
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.internal.file.copy.CopyActionProcessingStream;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.WorkResult;
+import org.gradle.api.tasks.WorkResults;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Copies files to a staging directory next to the destination directory and then moves each file into place, so
+ * a process reading the destination directory never sees a partially written file. The staging directory is on the
+ * same file system as the destination, so the moves are atomic renames. When hard links are enabled the staged files
+ * are linked to the source files where possible instead of copied.
+ */
+public class StagedCopyAction implements CopyAction {
+
+    private static final Logger LOGGER = Logging.getLogger(StagedCopyAction.class);
+
+    private final File destinationDir;
+    private final boolean hardLinks;
+
+    public StagedCopyAction(File destinationDir, boolean hardLinks) {
+        this.destinationDir = destinationDir;
+        this.hardLinks = hardLinks;
+    }
+
+    @Override
+    public WorkResult execute(CopyActionProcessingStream stream) {
+        Path destination = destinationDir.toPath().toAbsolutePath();
+        Path staging;
+        try {
+            Files.createDirectories(destination);
+            staging = Files.createTempDirectory(destination.getParent(), "." + destination.getFileName() + "-staging");
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure creating staging directory for " + destinationDir, e);
+        }
+
+        try {
+            List<Path[]> staged = new ArrayList<>();
+            stream.process(details -> {
+                if (details.isDirectory()) {
+                    createDirectories(details.getRelativePath().getFile(destination.toFile()).toPath());
+                } else {
+                    Path stagedFile = details.getRelativePath().getFile(staging.toFile()).toPath();
+                    createDirectories(stagedFile.getParent());
+                    stage(details, stagedFile);
+                    staged.add(new Path[] {stagedFile, details.getRelativePath().getFile(destination.toFile()).toPath()});
+                }
+            });
+            // the files are only moved into place when every file has been staged
+            for (Path[] paths : staged) {
+                createDirectories(paths[1].getParent());
+                move(paths[0], paths[1]);
+            }
+            return WorkResults.didWork(!staged.isEmpty());
+        }
+        finally {
+            delete(staging);
+        }
+    }
+
+    private void stage(FileCopyDetails details, Path stagedFile) {
+        if (hardLinks) {
+            try {
+                Files.createLink(stagedFile, details.getFile().toPath());
+                LOGGER.debug("Linked {} to {}", stagedFile, details.getFile());
+                return;
+            }
+            catch (IOException | UnsupportedOperationException | SecurityException e) {
+                LOGGER.info("Cannot link {}, copying the file: {}", details.getFile(), e.toString());
+            }
+        }
+        details.copyTo(stagedFile.toFile());
+    }
+
+    private static void move(Path source, Path target) {
+        try {
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure moving " + source + " to " + target, e);
+        }
+    }
+
+    private static void createDirectories(Path dir) {
+        try {
+            Files.createDirectories(dir);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void delete(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+        catch (IOException e) {
+            LOGGER.warn("Failure deleting staging directory {}", dir, e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.gradle.api.GradleException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A plugin definition whose beans are read with a StAX parser, either when the definition is created
+ * using {@link #read(File)} or when the beans are requested. The DTD is never loaded so the result
+ * does not depend on the offline setting.
+ */
+public class StreamingPluginDefinition extends PluginDefinition {
+
+    private final List<PluginBean> beans;
+    private final XMLStreamException failure;
+
+    public StreamingPluginDefinition(File file) {
+        this(file, null, null);
+    }
+
+    StreamingPluginDefinition(File file, List<PluginBean> beans, XMLStreamException failure) {
+        super(file);
+        this.beans = beans;
+        this.failure = failure;
+    }
+
+    public static StreamingPluginDefinition read(File file) {
+        return read(file, new XmlReaderPool(true));
+    }
+
+    static StreamingPluginDefinition read(File file, XmlReaderPool readers) {
+        XMLInputFactory factory = readers.takeInputFactory();
+        try (InputStream stream = Files.newInputStream(file.toPath())) {
+            return new StreamingPluginDefinition(file, readBeans(factory, stream), null);
+        }
+        catch (XMLStreamException e) {
+            return new StreamingPluginDefinition(file, Collections.emptyList(), e);
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure reading bean definition file", e);
+        }
+        finally {
+            readers.releaseInputFactory(factory);
+        }
+    }
+
+    @Override
+    public List<PluginBean> getBeans(XmlReaderPool readers) {
+        StreamingPluginDefinition definition = beans == null ? read(getFile(), readers) : this;
+        if (definition.failure != null) {
+            throw new GradleException("Failure parsing bean definition file", definition.failure);
+        }
+        return definition.beans;
+    }
+
+    static List<PluginBean> readBeans(XMLInputFactory factory, InputStream stream) throws XMLStreamException {
+        List<PluginBean> result = new ArrayList<>();
+        XMLStreamReader reader = factory.createXMLStreamReader(stream);
+        try {
+            int depth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    if (depth == 2 && "bean".equals(reader.getLocalName())) {
+                        result.add(new PluginBean(reader.getAttributeValue(null, "id"), reader.getAttributeValue(null, "class")));
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return result;
+    }
+}
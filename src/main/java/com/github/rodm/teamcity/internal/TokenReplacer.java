@@ -0,0 +1,159 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.gradle.api.Transformer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Replaces tokens of the form {@code @KEY@} with their values in a single pass over the input, keeping
+ * track of the tokens that were not used and the tokens found in the input that have no value.
+ * Unknown tokens are left unchanged, as with Ant's {@code ReplaceTokens} filter.
+ *
+ * <p>The replacer can also be used as a line filter in a copy spec. It is not thread-safe.
+ */
+public class TokenReplacer implements Transformer<String, String> {
+
+    private static final char DELIMITER = '@';
+    private static final int MIN_KEY_LENGTH = 128;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Map<String, String> values = new HashMap<>();
+    private final int maxKeyLength;
+    private final Set<String> used = new HashSet<>();
+    private final Set<String> unresolved = new TreeSet<>();
+
+    public TokenReplacer(Map<String, ?> tokens) {
+        int length = MIN_KEY_LENGTH;
+        for (Map.Entry<String, ?> token : tokens.entrySet()) {
+            values.put(token.getKey(), String.valueOf(token.getValue()));
+            length = Math.max(length, token.getKey().length());
+        }
+        this.maxKeyLength = length;
+    }
+
+    /**
+     * Copies the input to the output replacing the tokens. Neither the reader nor the writer are closed.
+     */
+    public void replace(Reader in, Writer out) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        StringBuilder key = new StringBuilder();
+        boolean inKey = false;
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            int start = 0;
+            for (int i = 0; i < count; i++) {
+                char c = buffer[i];
+                if (!inKey) {
+                    if (c == DELIMITER) {
+                        out.write(buffer, start, i - start);
+                        inKey = true;
+                        key.setLength(0);
+                    }
+                    continue;
+                }
+                if (c == DELIMITER) {
+                    String name = key.toString();
+                    String value = values.get(name);
+                    key.setLength(0);
+                    if (value != null) {
+                        used.add(name);
+                        out.write(value);
+                        inKey = false;
+                        start = i + 1;
+                    } else {
+                        // the closing delimiter may start the next token
+                        if (isTokenName(name)) {
+                            unresolved.add(name);
+                        }
+                        out.write(DELIMITER);
+                        out.write(name);
+                    }
+                } else if (c == '\n' || c == '\r' || key.length() >= maxKeyLength) {
+                    out.write(DELIMITER);
+                    out.append(key);
+                    inKey = false;
+                    start = i;
+                } else {
+                    key.append(c);
+                }
+            }
+            if (!inKey) {
+                out.write(buffer, start, count - start);
+            }
+        }
+        if (inKey) {
+            out.write(DELIMITER);
+            out.append(key);
+        }
+    }
+
+    public String replace(String text) {
+        StringWriter writer = new StringWriter(text.length());
+        try {
+            replace(new StringReader(text), writer);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    @Override
+    public String transform(String line) {
+        return replace(line);
+    }
+
+    /**
+     * @return the tokens with a value that were not found in the input, sorted by name
+     */
+    public Set<String> getUnusedTokens() {
+        Set<String> unused = new TreeSet<>(values.keySet());
+        unused.removeAll(used);
+        return unused;
+    }
+
+    /**
+     * @return the tokens found in the input that have no value, sorted by name
+     */
+    public Set<String> getUnresolvedTokens() {
+        return unresolved;
+    }
+
+    private static boolean isTokenName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '.' && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
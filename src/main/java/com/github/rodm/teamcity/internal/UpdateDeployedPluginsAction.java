@@ -0,0 +1,47 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+
+import java.io.File;
+import java.util.Set;
+
+/**
+ * Records the plugins deployed, or removes the plugins un-deployed, from the deployed plugins manifest.
+ */
+public class UpdateDeployedPluginsAction implements Action<Task> {
+
+    private final DeployedPluginsManifest manifest;
+    private final Set<File> plugins;
+    private final boolean deployed;
+
+    public UpdateDeployedPluginsAction(DeployedPluginsManifest manifest, Set<File> plugins, boolean deployed) {
+        this.manifest = manifest;
+        this.plugins = plugins;
+        this.deployed = deployed;
+    }
+
+    @Override
+    public void execute(Task task) {
+        if (deployed) {
+            manifest.update(plugins);
+        } else {
+            manifest.remove(plugins);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.gradle.api.Project;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.build.event.BuildEventsListenerRegistry;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationCompletionListener;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.gradle.tooling.events.task.TaskSuccessResult;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Build service logging the warnings in the report of a validation task when the task is up-to-date or its
+ * result is loaded from the build cache, so the warnings are output by every build and not only when the
+ * task runs.
+ */
+public abstract class ValidationReportListener implements BuildService<ValidationReportListener.Parameters>, OperationCompletionListener {
+
+    public static final String VALIDATION_REPORT_LISTENER_SERVICE_NAME = "teamcityValidationReportListener";
+
+    private static final Logger LOGGER = Logging.getLogger(ValidationReportListener.class);
+
+    private Map<String, File> reports;
+
+    public interface Parameters extends BuildServiceParameters {
+        /**
+         * @return the reports of the validation tasks, by task path
+         */
+        MapProperty<String, File> getReports();
+    }
+
+    /**
+     * Registers the report of the task, the warnings in the report are logged when the task does not run.
+     */
+    public static void register(Project project, String taskName, Provider<RegularFile> report) {
+        Gradle gradle = project.getGradle();
+        boolean registered = gradle.getSharedServices().getRegistrations().findByName(VALIDATION_REPORT_LISTENER_SERVICE_NAME) != null;
+        Provider<ValidationReportListener> listener = gradle.getSharedServices()
+            .registerIfAbsent(VALIDATION_REPORT_LISTENER_SERVICE_NAME, ValidationReportListener.class, spec -> {});
+        if (!registered) {
+            project.getObjects().newInstance(ListenerRegistry.class).getRegistry().onTaskCompletion(listener);
+        }
+        Parameters parameters = (Parameters) gradle.getSharedServices().getRegistrations()
+            .getByName(VALIDATION_REPORT_LISTENER_SERVICE_NAME).getParameters();
+        parameters.getReports().put(project.absoluteProjectPath(taskName), report.map(RegularFile::getAsFile));
+    }
+
+    @Override
+    public void onFinish(FinishEvent event) {
+        if (!(event instanceof TaskFinishEvent) || !(event.getResult() instanceof TaskSuccessResult)) {
+            return;
+        }
+        TaskSuccessResult result = (TaskSuccessResult) event.getResult();
+        if (!result.isUpToDate() && !result.isFromCache()) {
+            return;
+        }
+        File report = getReports().get(((TaskFinishEvent) event).getDescriptor().getTaskPath());
+        if (report != null && report.isFile()) {
+            for (String warning : readWarnings(report)) {
+                LOGGER.warn(warning);
+            }
+        }
+    }
+
+    private synchronized Map<String, File> getReports() {
+        if (reports == null) {
+            reports = getParameters().getReports().get();
+        }
+        return reports;
+    }
+
+    private static List<String> readWarnings(File report) {
+        try {
+            return Files.readAllLines(report.toPath(), StandardCharsets.UTF_8);
+        }
+        catch (IOException e) {
+            LOGGER.info("Failure reading validation report {}: {}", report, e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    public abstract static class ListenerRegistry {
+        @Inject
+        public abstract BuildEventsListenerRegistry getRegistry();
+    }
+}
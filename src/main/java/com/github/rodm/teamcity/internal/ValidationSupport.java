@@ -20,37 +20,68 @@ import org.gradle.api.GradleException;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXNotRecognizedException;
 import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.XMLReader;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
 
 public class ValidationSupport {
 
     private static final String LOAD_EXTERNAL_DTD = "http://apache.org/xml/features/nonvalidating/load-external-dtd";
+    private static final String DISALLOW_DOCTYPE_DECL = "http://apache.org/xml/features/disallow-doctype-decl";
 
     public static XmlParser createXmlParser() {
         return createXmlParser(false);
     }
 
     public static XmlParser createXmlParser(boolean offline) {
+        return new XmlParser(createXMLReader(offline));
+    }
+
+    public static XMLReader createXMLReader(boolean offline) {
         try {
-            XmlParser parser = new XmlParser(false, true, true);
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setValidating(false);
+            setFactoryFeature(factory, XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            setFactoryFeature(factory, DISALLOW_DOCTYPE_DECL, false);
+            XMLReader reader = factory.newSAXParser().getXMLReader();
+            reader.setEntityResolver(LocalEntityResolver.getInstance());
             if (offline) {
-                parser.setFeature(LOAD_EXTERNAL_DTD, false);
+                reader.setFeature(LOAD_EXTERNAL_DTD, false);
             }
 
-            setParserProperty(parser, XMLConstants.ACCESS_EXTERNAL_DTD, "file,http");
-            setParserProperty(parser, XMLConstants.ACCESS_EXTERNAL_SCHEMA, "file,http");
-            return parser;
+            setReaderProperty(reader, XMLConstants.ACCESS_EXTERNAL_DTD, "file,http");
+            setReaderProperty(reader, XMLConstants.ACCESS_EXTERNAL_SCHEMA, "file,http");
+            return reader;
         }
         catch (SAXException | ParserConfigurationException e) {
             throw new GradleException("Failed to create XML parser", e);
         }
     }
 
-    private static void setParserProperty(XmlParser parser, String uri, Object value) {
+    public static XMLInputFactory createXMLInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private static void setFactoryFeature(SAXParserFactory factory, String uri, boolean value) {
+        try {
+            factory.setFeature(uri, value);
+        }
+        catch (ParserConfigurationException | SAXNotRecognizedException | SAXNotSupportedException e) {
+            // ignore
+        }
+    }
+
+    private static void setReaderProperty(XMLReader reader, String uri, Object value) {
         try {
-            parser.setProperty(uri, value);
+            reader.setProperty(uri, value);
         }
         catch (SAXNotRecognizedException | SAXNotSupportedException e) {
             // ignore
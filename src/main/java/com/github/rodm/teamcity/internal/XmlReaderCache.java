@@ -0,0 +1,45 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.gradle.api.invocation.Gradle;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Build service holding the pools of configured XML readers, so the readers created to parse the plugin
+ * definition files and the plugin descriptors are reused by all the plugin tasks in the build.
+ */
+public abstract class XmlReaderCache implements BuildService<BuildServiceParameters.None> {
+
+    public static final String XML_READER_CACHE_SERVICE_NAME = "teamcityXmlReaderCache";
+
+    private final XmlReaderPool offlineReaders = new XmlReaderPool(true);
+    private final XmlReaderPool onlineReaders = new XmlReaderPool(false);
+
+    public static Provider<XmlReaderCache> register(Gradle gradle) {
+        return gradle.getSharedServices().registerIfAbsent(XML_READER_CACHE_SERVICE_NAME, XmlReaderCache.class, spec -> {});
+    }
+
+    /**
+     * @param offline true if the readers must not load external DTDs
+     * @return the pool of readers
+     */
+    public XmlReaderPool getReaders(boolean offline) {
+        return offline ? offlineReaders : onlineReaders;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.xml.sax.XMLReader;
+
+import javax.xml.stream.XMLInputFactory;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The configured XML readers used to parse the plugin definition files and plugin descriptors. A reader is
+ * taken from the pool for each file and released when the file has been parsed, so the readers are reused by
+ * the threads parsing the files. The pools are held by the {@link XmlReaderCache} build service.
+ */
+public class XmlReaderPool {
+
+    private final boolean offline;
+    private final Queue<XMLReader> readers = new ConcurrentLinkedQueue<>();
+    private final Queue<XMLInputFactory> inputFactories = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param offline true if external DTDs must not be loaded
+     */
+    public XmlReaderPool(boolean offline) {
+        this.offline = offline;
+    }
+
+    public XMLReader takeReader() {
+        XMLReader reader = readers.poll();
+        return reader != null ? reader : ValidationSupport.createXMLReader(offline);
+    }
+
+    /**
+     * Returns the reader to the pool, the handlers are removed so the reader does not keep the parsed document.
+     */
+    public void releaseReader(XMLReader reader) {
+        reader.setContentHandler(null);
+        reader.setErrorHandler(null);
+        readers.add(reader);
+    }
+
+    public XMLInputFactory takeInputFactory() {
+        XMLInputFactory factory = inputFactories.poll();
+        return factory != null ? factory : ValidationSupport.createXMLInputFactory();
+    }
+
+    public void releaseInputFactory(XMLInputFactory factory) {
+        inputFactories.add(factory);
+    }
+}
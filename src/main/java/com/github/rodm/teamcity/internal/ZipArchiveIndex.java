@@ -0,0 +1,211 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The central directory of an existing zip archive, used to copy the compressed data of unchanged
+ * entries into a new archive. Only entries without a data descriptor are indexed and Zip64 archives
+ * are not supported. The data can be copied concurrently.
+ */
+public class ZipArchiveIndex implements Closeable {
+
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int CENTRAL_FILE_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xffff;
+    private static final int DATA_DESCRIPTOR_FLAG = 1 << 3;
+
+    private final FileChannel channel;
+    private final Map<String, IndexedEntry> entries = new HashMap<>();
+
+    private ZipArchiveIndex(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Reads the central directory of the archive.
+     *
+     * @throws IOException if the archive cannot be read or is not a supported zip archive
+     */
+    public static ZipArchiveIndex read(File archive) throws IOException {
+        FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ);
+        try {
+            ZipArchiveIndex index = new ZipArchiveIndex(channel);
+            index.readCentralDirectory();
+            return index;
+        }
+        catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public IndexedEntry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Copies the compressed data of the entry to the stream.
+     */
+    public void copyData(IndexedEntry entry, OutputStream out) throws IOException {
+        ByteBuffer header = read(entry.headerOffset, 30);
+        if (header.getInt(0) != LOCAL_FILE_HEADER) {
+            throw new IOException("Invalid local file header for entry " + entry.name);
+        }
+        long position = entry.headerOffset + 30 + (header.getShort(26) & 0xffff) + (header.getShort(28) & 0xffff);
+        long remaining = entry.compressedSize;
+        ByteBuffer buffer = ByteBuffer.allocate(65536);
+        while (remaining > 0) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+            int length = channel.read(buffer, position);
+            if (length < 0) {
+                throw new EOFException();
+            }
+            out.write(buffer.array(), 0, length);
+            position += length;
+            remaining -= length;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void readCentralDirectory() throws IOException {
+        long size = channel.size();
+        int tailSize = (int) Math.min(size, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_SIZE);
+        ByteBuffer tail = read(size - tailSize, tailSize);
+        int end = -1;
+        for (int pos = tailSize - END_OF_CENTRAL_DIRECTORY_SIZE; pos >= 0; pos--) {
+            if (tail.getInt(pos) == END_OF_CENTRAL_DIRECTORY) {
+                end = pos;
+                break;
+            }
+        }
+        if (end < 0) {
+            throw new IOException("End of central directory not found");
+        }
+        int count = tail.getShort(end + 10) & 0xffff;
+        long directorySize = tail.getInt(end + 12) & 0xffffffffL;
+        long directoryOffset = tail.getInt(end + 16) & 0xffffffffL;
+        if (count == 0xffff || directoryOffset == 0xffffffffL) {
+            throw new IOException("Zip64 archives are not supported");
+        }
+
+        ByteBuffer directory = read(directoryOffset, (int) directorySize);
+        int pos = 0;
+        for (int i = 0; i < count; i++) {
+            if (directory.getInt(pos) != CENTRAL_FILE_HEADER) {
+                throw new IOException("Invalid central directory header");
+            }
+            int flags = directory.getShort(pos + 8) & 0xffff;
+            int method = directory.getShort(pos + 10) & 0xffff;
+            long dosTime = directory.getInt(pos + 12) & 0xffffffffL;
+            long crc = directory.getInt(pos + 16) & 0xffffffffL;
+            long compressedSize = directory.getInt(pos + 20) & 0xffffffffL;
+            long entrySize = directory.getInt(pos + 24) & 0xffffffffL;
+            int nameLength = directory.getShort(pos + 28) & 0xffff;
+            int extraLength = directory.getShort(pos + 30) & 0xffff;
+            int commentLength = directory.getShort(pos + 32) & 0xffff;
+            int mode = (directory.getInt(pos + 38) >>> 16) & 07777;
+            long headerOffset = directory.getInt(pos + 42) & 0xffffffffL;
+            byte[] name = new byte[nameLength];
+            directory.position(pos + 46);
+            directory.get(name);
+            if ((flags & DATA_DESCRIPTOR_FLAG) == 0) {
+                String entryName = new String(name, StandardCharsets.UTF_8);
+                entries.put(entryName, new IndexedEntry(entryName, method, dosTime, crc, compressedSize, entrySize, mode, headerOffset));
+            }
+            pos += 46 + nameLength + extraLength + commentLength;
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    public static class IndexedEntry {
+
+        private final String name;
+        private final int method;
+        private final long dosTime;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private final int mode;
+        private final long headerOffset;
+
+        IndexedEntry(String name, int method, long dosTime, long crc, long compressedSize, long size, int mode, long headerOffset) {
+            this.name = name;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.mode = mode;
+            this.headerOffset = headerOffset;
+        }
+
+        /**
+         * @return true if the entry has the same contents and attributes, and can be copied without compressing the contents
+         */
+        public boolean matches(int method, long dosTime, long crc, long size, int mode) {
+            return this.method == method && this.dosTime == dosTime && this.crc == crc && this.size == size && this.mode == mode;
+        }
+
+        public int getMethod() {
+            return method;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+    }
+}
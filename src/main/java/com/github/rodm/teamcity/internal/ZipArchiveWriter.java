@@ -0,0 +1,333 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.internal;
+
+import org.gradle.api.GradleException;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Calendar;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes zip archives from entries that are already compressed, so the entries can be compressed
+ * concurrently and written in order. Large entries can instead be compressed while they are written,
+ * the CRC and sizes are then updated in the local file header. The central directory is written when
+ * the writer is closed. Zip64 archives are not supported.
+ */
+public class ZipArchiveWriter implements Closeable {
+
+    public static final int STORED = 0;
+    public static final int DEFLATED = 8;
+
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int CENTRAL_FILE_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+    private static final int VERSION_MADE_BY = (3 << 8) | 20;   // unix, zip 2.0
+    private static final int UTF8_NAMES_FLAG = 1 << 11;
+    private static final int UNIX_FILE_FLAG = 0100000;
+    private static final int UNIX_DIR_FLAG = 040000;
+
+    private static final int MAX_ENTRIES = 0xffff;
+    private static final long MAX_SIZE = 0xffffffffL;
+
+    private final File file;
+    private final FileChannel channel;
+    private final OutputStream out;
+    private final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+    private final byte[] header = new byte[46];
+    private long offset;
+    private int entries;
+
+    public ZipArchiveWriter(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.out = new BufferedOutputStream(Channels.newOutputStream(channel), 65536);
+    }
+
+    public void write(Entry entry) throws IOException {
+        checkSize(entry.size, entry.compressedSize);
+        byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+        writeLocalHeader(entry, name);
+        if (entry.data != null) {
+            out.write(entry.data, 0, (int) entry.compressedSize);
+        }
+        else {
+            entry.source.copyData(entry.sourceEntry, out);
+        }
+        addCentralDirectoryHeader(entry, name);
+    }
+
+    /**
+     * Writes an entry with the contents written by the given action, compressing the contents on the calling
+     * thread. The contents are not held in memory, the CRC and the sizes are written to the local file header
+     * once the contents have been written.
+     */
+    public void write(String entryName, int mode, long dosTime, int method, ContentsWriter contents) throws IOException {
+        checkSize(0, 0);
+        byte[] name = entryName.getBytes(StandardCharsets.UTF_8);
+        long headerOffset = offset;
+        writeLocalHeader(new Entry(entryName, false, mode, dosTime, method, 0, 0, null, 0), name);
+
+        CountingOutputStream compressed = new CountingOutputStream(out);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            DeflaterOutputStream deflated = method == DEFLATED ? new DeflaterOutputStream(compressed, deflater, 8192) : null;
+            CRC32 crc = new CRC32();
+            CountingOutputStream uncompressed = new CountingOutputStream(deflated != null ? deflated : compressed) {
+                @Override
+                public void write(byte[] bytes, int off, int len) throws IOException {
+                    crc.update(bytes, off, len);
+                    super.write(bytes, off, len);
+                }
+            };
+            contents.writeTo(uncompressed);
+            if (deflated != null) {
+                deflated.finish();
+            }
+            checkSize(uncompressed.count, compressed.count);
+            Entry entry = new Entry(entryName, false, mode, dosTime, method, crc.getValue(), uncompressed.count, null, compressed.count);
+
+            out.flush();
+            ByteBuffer fields = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            fields.putInt((int) entry.crc).putInt((int) entry.compressedSize).putInt((int) entry.size).flip();
+            while (fields.hasRemaining()) {
+                channel.write(fields, headerOffset + 14 + fields.position());
+            }
+            addCentralDirectoryHeader(entry, name);
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    private void checkSize(long size, long compressedSize) {
+        if (entries == MAX_ENTRIES || offset > MAX_SIZE || size > MAX_SIZE || compressedSize > MAX_SIZE) {
+            throw new GradleException("Archive '" + file + "' requires the Zip64 extension, which is not supported when compressing in parallel.");
+        }
+    }
+
+    private void writeLocalHeader(Entry entry, byte[] name) throws IOException {
+        int pos = 0;
+        pos = putInt(header, pos, LOCAL_FILE_HEADER);
+        pos = putShort(header, pos, versionNeeded(entry));
+        pos = putEntryFields(header, pos, entry, name);
+        pos = putShort(header, pos, 0);
+        out.write(header, 0, pos);
+        out.write(name);
+    }
+
+    private void addCentralDirectoryHeader(Entry entry, byte[] name) throws IOException {
+        int pos = 0;
+        pos = putInt(header, pos, CENTRAL_FILE_HEADER);
+        pos = putShort(header, pos, VERSION_MADE_BY);
+        pos = putShort(header, pos, versionNeeded(entry));
+        pos = putEntryFields(header, pos, entry, name);
+        pos = putShort(header, pos, 0);
+        pos = putShort(header, pos, 0);
+        pos = putShort(header, pos, 0);
+        pos = putShort(header, pos, 0);
+        pos = putInt(header, pos, externalAttributes(entry));
+        pos = putInt(header, pos, (int) offset);
+        centralDirectory.write(header, 0, pos);
+        centralDirectory.write(name);
+
+        offset += 30 + name.length + entry.compressedSize;
+        entries++;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (offset > MAX_SIZE || centralDirectory.size() + offset > MAX_SIZE) {
+                throw new GradleException("Archive '" + file + "' requires the Zip64 extension, which is not supported when compressing in parallel.");
+            }
+            centralDirectory.writeTo(out);
+            int pos = 0;
+            pos = putInt(header, pos, END_OF_CENTRAL_DIRECTORY);
+            pos = putShort(header, pos, 0);
+            pos = putShort(header, pos, 0);
+            pos = putShort(header, pos, entries);
+            pos = putShort(header, pos, entries);
+            pos = putInt(header, pos, centralDirectory.size());
+            pos = putInt(header, pos, (int) offset);
+            pos = putShort(header, pos, 0);
+            out.write(header, 0, pos);
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Converts a time in milliseconds to an MS-DOS date and time in the local time zone.
+     */
+    public static long toDosTime(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return toDosTime(1980, 1, 1, 0, 0, 0);
+        }
+        return toDosTime(year, calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH),
+            calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND));
+    }
+
+    public static long toDosTime(int year, int month, int day, int hour, int minute, int second) {
+        return ((long) (year - 1980) << 25) | ((long) month << 21) | ((long) day << 16)
+            | ((long) hour << 11) | ((long) minute << 5) | ((long) second >> 1);
+    }
+
+    private static int versionNeeded(Entry entry) {
+        return entry.method == DEFLATED ? 20 : 10;
+    }
+
+    private static int putEntryFields(byte[] bytes, int pos, Entry entry, byte[] name) {
+        pos = putShort(bytes, pos, UTF8_NAMES_FLAG);
+        pos = putShort(bytes, pos, entry.method);
+        pos = putInt(bytes, pos, (int) entry.dosTime);
+        pos = putInt(bytes, pos, (int) entry.crc);
+        pos = putInt(bytes, pos, (int) entry.compressedSize);
+        pos = putInt(bytes, pos, (int) entry.size);
+        return putShort(bytes, pos, name.length);
+    }
+
+    private static int externalAttributes(Entry entry) {
+        int mode = (entry.directory ? UNIX_DIR_FLAG : UNIX_FILE_FLAG) | entry.mode;
+        int attributes = mode << 16;
+        if ((entry.mode & 0200) == 0) {
+            attributes |= 0x01;     // MS-DOS read-only
+        }
+        if (entry.directory) {
+            attributes |= 0x10;     // MS-DOS directory
+        }
+        return attributes;
+    }
+
+    private static int putShort(byte[] bytes, int pos, int value) {
+        bytes[pos] = (byte) value;
+        bytes[pos + 1] = (byte) (value >>> 8);
+        return pos + 2;
+    }
+
+    private static int putInt(byte[] bytes, int pos, int value) {
+        bytes[pos] = (byte) value;
+        bytes[pos + 1] = (byte) (value >>> 8);
+        bytes[pos + 2] = (byte) (value >>> 16);
+        bytes[pos + 3] = (byte) (value >>> 24);
+        return pos + 4;
+    }
+
+    /**
+     * Writes the uncompressed contents of an entry.
+     */
+    public interface ContentsWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            out.write(bytes, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() {
+            // the archive stream is closed by the writer
+        }
+    }
+
+    /**
+     * An entry with its data already compressed using the entry's method, either in memory or in an existing archive.
+     */
+    public static class Entry {
+
+        private final String name;
+        private final boolean directory;
+        private final int mode;
+        private final long dosTime;
+        private final int method;
+        private final long crc;
+        private final long size;
+        private final byte[] data;
+        private final long compressedSize;
+        private final ZipArchiveIndex source;
+        private final ZipArchiveIndex.IndexedEntry sourceEntry;
+
+        public Entry(String name, boolean directory, int mode, long dosTime, int method, long crc, long size, byte[] data, long compressedSize) {
+            this(name, directory, mode, dosTime, method, crc, size, data, compressedSize, null, null);
+        }
+
+        private Entry(String name, boolean directory, int mode, long dosTime, int method, long crc, long size, byte[] data,
+                      long compressedSize, ZipArchiveIndex source, ZipArchiveIndex.IndexedEntry sourceEntry)
+        {
+            this.name = name;
+            this.directory = directory;
+            this.mode = mode;
+            this.dosTime = dosTime;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.data = data;
+            this.compressedSize = compressedSize;
+            this.source = source;
+            this.sourceEntry = sourceEntry;
+        }
+
+        public static Entry directory(String name, int mode, long dosTime) {
+            return new Entry(name, true, mode, dosTime, STORED, 0, 0, new byte[0], 0);
+        }
+
+        /**
+         * An entry with the compressed data of an entry in an existing archive, the data is copied when the entry is written.
+         */
+        public static Entry copy(String name, int mode, long dosTime, ZipArchiveIndex source, ZipArchiveIndex.IndexedEntry sourceEntry) {
+            return new Entry(name, false, mode, dosTime, sourceEntry.getMethod(), sourceEntry.getCrc(), sourceEntry.getSize(), null,
+                sourceEntry.getCompressedSize(), source, sourceEntry);
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
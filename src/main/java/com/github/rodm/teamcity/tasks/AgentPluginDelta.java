@@ -0,0 +1,158 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.tasks;
+
+import com.github.rodm.teamcity.internal.ArchiveDelta;
+import com.github.rodm.teamcity.internal.ArchiveManifest;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+@CacheableTask
+public abstract class AgentPluginDelta extends DefaultTask {
+
+    static final String CHANGE_MESSAGE = "{}: {}";
+    static final String DELTA_SUMMARY = "{}: {} entries changed, {} unchanged, {} libraries changed, {} bytes to update";
+
+    private final FileSystemOperations fileOperations;
+
+    @Inject
+    public AgentPluginDelta(FileSystemOperations fileOperations) {
+        setDescription("Compares the agent plugin with a previous release and reports the changed entries");
+        this.fileOperations = fileOperations;
+    }
+
+    /**
+     * @return the agent plugin archive of the previous release, when not set every entry is reported as added
+     */
+    @Optional
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getPreviousArchive();
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getArchive();
+
+    /**
+     * @return the manifest listing the SHA-256 hash and size of each entry of the agent plugin
+     */
+    @OutputFile
+    public abstract RegularFileProperty getManifest();
+
+    /**
+     * @return the report listing the entries added, removed, modified, renamed and the libraries updated
+     */
+    @OutputFile
+    public abstract RegularFileProperty getReport();
+
+    /**
+     * @return the directory the agent plugin contents are extracted to, keeping the previous names of the
+     * libraries that were only renamed, nothing is extracted when not set
+     */
+    @Optional
+    @OutputDirectory
+    public abstract DirectoryProperty getLayout();
+
+    @TaskAction
+    public void compare() {
+        File archive = getArchive().get().getAsFile();
+        ArchiveManifest manifest = readManifest(archive);
+        ArchiveManifest previousManifest = getPreviousArchive().isPresent()
+            ? readManifest(getPreviousArchive().get().getAsFile())
+            : ArchiveManifest.empty();
+        ArchiveDelta delta = ArchiveDelta.compare(previousManifest, manifest);
+
+        for (String line : delta.toLines()) {
+            getLogger().info(CHANGE_MESSAGE, getPath(), line);
+        }
+        getLogger().lifecycle(DELTA_SUMMARY, getPath(), delta.getChanges().size(), delta.getUnchanged(),
+            delta.getLibraryChanges().size(), delta.getChangedSize());
+
+        write(getManifest().get().getAsFile(), manifest.toLines());
+        write(getReport().get().getAsFile(), delta.toLines());
+        if (getLayout().isPresent()) {
+            extract(archive, getLayout().get().getAsFile(), delta.getStableLibraryNames());
+        }
+    }
+
+    private static ArchiveManifest readManifest(File archive) {
+        try {
+            return ArchiveManifest.read(archive);
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure reading agent plugin " + archive, e);
+        }
+    }
+
+    private void extract(File archive, File layoutDir, Map<String, String> stableNames) {
+        fileOperations.delete(spec -> spec.delete(layoutDir));
+        Path root = layoutDir.toPath().toAbsolutePath().normalize();
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = stableNames.getOrDefault(entry.getName(), entry.getName());
+                Path target = root.resolve(name).normalize();
+                if (!target.startsWith(root)) {
+                    throw new GradleException("Agent plugin entry '" + entry.getName() + "' is outside the layout directory");
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(target);
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    Files.copy(in, target);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure extracting agent plugin " + archive, e);
+        }
+    }
+
+    private static void write(File file, Iterable<String> lines) {
+        try {
+            Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure writing " + file, e);
+        }
+    }
+}
@@ -16,15 +16,21 @@
 package com.github.rodm.teamcity.tasks;
 
 import com.github.rodm.teamcity.internal.ServerConfiguration;
+import com.github.rodm.teamcity.internal.StagedCopyAction;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.internal.file.copy.CopyAction;
+import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Copy;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.work.DisableCachingByDefault;
 
+import java.time.Duration;
+
 @DisableCachingByDefault(because = "Not worth caching")
 public abstract class Deploy extends Copy implements ServerConfiguration {
 
@@ -34,6 +40,11 @@ public abstract class Deploy extends Copy implements ServerConfiguration {
         into(getPluginsDir());
         getServerHost().convention("localhost");
         getServerPort().convention("8111");
+        getRequestTimeout().convention(Duration.ofMinutes(2));
+        getConnectTimeout().convention(Duration.ofSeconds(10));
+        getReadyTimeout().convention(Duration.ZERO);
+        getAtomic().convention(false);
+        getHardLinks().convention(false);
     }
 
     @InputFiles
@@ -42,4 +53,28 @@ public abstract class Deploy extends Copy implements ServerConfiguration {
 
     @OutputDirectory
     public abstract DirectoryProperty getPluginsDir();
+
+    /**
+     * @return whether the plugins are copied to a staging directory next to the plugins directory and then moved
+     * into place, so a running server never sees a partially written plugin, defaults to false
+     */
+    @Internal
+    public abstract Property<Boolean> getAtomic();
+
+    /**
+     * @return whether the staged plugins are hard links to the plugin archives instead of copies, when the archives
+     * and the plugins directory are on the same file system, enables atomic deployment, defaults to false. The plugin
+     * archive tasks replace the archives instead of rewriting them, so the next build does not change a linked plugin.
+     */
+    @Internal
+    public abstract Property<Boolean> getHardLinks();
+
+    @Override
+    protected CopyAction createCopyAction() {
+        boolean hardLinks = getHardLinks().get();
+        if (getAtomic().get() || hardLinks) {
+            return new StagedCopyAction(getDestinationDir(), hardLinks);
+        }
+        return super.createCopyAction();
+    }
 }
@@ -18,21 +18,21 @@ package com.github.rodm.teamcity.tasks;
 import com.github.rodm.teamcity.AgentPluginDescriptor;
 import com.github.rodm.teamcity.AgentPluginDescriptorGenerator;
 import com.github.rodm.teamcity.TeamCityVersion;
+import com.github.rodm.teamcity.internal.OutputFiles;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Input;
-import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.Writer;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 
 import static com.github.rodm.teamcity.TeamCityVersion.VERSION_9_0;
 
@@ -44,14 +44,24 @@ public abstract class GenerateAgentPluginDescriptor extends DefaultTask {
     public GenerateAgentPluginDescriptor() {
         setDescription("Generates the Agent-side plugin descriptor");
         onlyIf(task -> getDescriptor().isPresent());
+        // the descriptor is generated once, when the task inputs are fingerprinted
+        getDescriptorContents().value(getDescriptor().map(GenerateAgentPluginDescriptor::generate)).disallowChanges();
+        getDescriptorContents().finalizeValueOnRead();
     }
 
     @Input
     public abstract Property<TeamCityVersion> getVersion();
 
-    @Nested
+    @Internal
     public abstract Property<AgentPluginDescriptor> getDescriptor();
 
+    /**
+     * @return the generated descriptor, used as the input of the task instead of the descriptor properties
+     * and written by the task action
+     */
+    @Input
+    public abstract Property<String> getDescriptorContents();
+
     @OutputFile
     public abstract RegularFileProperty getDestination();
 
@@ -63,13 +73,21 @@ public abstract class GenerateAgentPluginDescriptor extends DefaultTask {
             getLogger().warn(DEPENDENCIES_NOT_SUPPORTED, getPath(), version);
         }
 
-        final AgentPluginDescriptorGenerator generator = new AgentPluginDescriptorGenerator(descriptor);
         final File destinationFile = getDestination().get().getAsFile();
-        try (Writer writer = Files.newBufferedWriter(destinationFile.toPath(), StandardCharsets.UTF_8)) {
-            generator.writeTo(writer);
+        try {
+            byte[] contents = getDescriptorContents().get().getBytes(StandardCharsets.UTF_8);
+            if (!OutputFiles.writeIfChanged(destinationFile, contents)) {
+                getLogger().info("{}: Plugin descriptor is unchanged, skipped writing {}", getPath(), destinationFile);
+            }
         }
         catch (IOException e) {
             throw new GradleException("Failure writing descriptor", e);
         }
     }
+
+    private static String generate(AgentPluginDescriptor descriptor) {
+        StringWriter writer = new StringWriter();
+        new AgentPluginDescriptorGenerator(descriptor).writeTo(writer);
+        return writer.toString();
+    }
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.tasks;
+
+import com.github.rodm.teamcity.ValidationMode;
+import com.github.rodm.teamcity.internal.ArchiveSizeReport;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static com.github.rodm.teamcity.ValidationMode.FAIL;
+import static com.github.rodm.teamcity.ValidationMode.IGNORE;
+import static com.github.rodm.teamcity.ValidationMode.WARN;
+
+@CacheableTask
+public abstract class PluginArchiveReport extends DefaultTask {
+
+    static final String ARCHIVE_SIZE_WARNING = "{}: Plugin archive size of {} bytes exceeds the budget of {} bytes.";
+    static final String UNCOMPRESSED_SIZE_WARNING = "{}: Plugin archive uncompressed size of {} bytes exceeds the budget of {} bytes.";
+    static final String LIBRARY_SIZE_WARNING = "{}: Library '{}' size of {} bytes exceeds the budget of {} bytes.";
+
+    public PluginArchiveReport() {
+        setDescription("Reports the sizes of the plugin archive contents");
+        getMode().convention(WARN);
+    }
+
+    /**
+     * @return the plugin archive, its name is included in the report
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract RegularFileProperty getArchive();
+
+    /**
+     * @return the dependency coordinates of the libraries in the plugin archive, by file name
+     */
+    @Input
+    public abstract MapProperty<String, String> getCoordinates();
+
+    /**
+     * @return the maximum size in bytes of the plugin archive
+     */
+    @Optional
+    @Input
+    public abstract Property<Long> getMaxArchiveSize();
+
+    /**
+     * @return the maximum size in bytes of the uncompressed contents of the plugin archive
+     */
+    @Optional
+    @Input
+    public abstract Property<Long> getMaxUncompressedSize();
+
+    /**
+     * @return the maximum compressed size in bytes of each library in the plugin archive
+     */
+    @Optional
+    @Input
+    public abstract Property<Long> getMaxLibrarySize();
+
+    /**
+     * @return how an exceeded budget is reported, defaults to WARN
+     */
+    @Input
+    public abstract Property<ValidationMode> getMode();
+
+    public void setMode(String mode) {
+        getMode().set(ValidationMode.valueOf(mode.toUpperCase()));
+    }
+
+    /**
+     * @return the JSON report of the sizes and the budgets
+     */
+    @OutputFile
+    public abstract RegularFileProperty getReport();
+
+    @TaskAction
+    public void report() {
+        File archive = getArchive().get().getAsFile();
+        ArchiveSizeReport report;
+        try {
+            report = ArchiveSizeReport.read(archive, getCoordinates().get());
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure reading plugin archive " + archive, e);
+        }
+
+        for (ArchiveSizeReport.Size directory : report.getDirectories()) {
+            getLogger().info("{}: Directory '{}' {} entries, {} bytes compressed, {} bytes uncompressed", getPath(),
+                directory.getPath(), directory.getEntries(), directory.getCompressedSize(), directory.getSize());
+        }
+
+        boolean exceeded = false;
+        if (getMaxArchiveSize().isPresent()) {
+            long limit = getMaxArchiveSize().get();
+            if (report.checkBudget("archiveSize", report.getArchiveSize(), limit)) {
+                exceeded = true;
+                warn(ARCHIVE_SIZE_WARNING, report.getArchiveSize(), limit);
+            }
+        }
+        if (getMaxUncompressedSize().isPresent()) {
+            long limit = getMaxUncompressedSize().get();
+            if (report.checkBudget("uncompressedSize", report.getTotal().getSize(), limit)) {
+                exceeded = true;
+                warn(UNCOMPRESSED_SIZE_WARNING, report.getTotal().getSize(), limit);
+            }
+        }
+        if (getMaxLibrarySize().isPresent()) {
+            long limit = getMaxLibrarySize().get();
+            for (ArchiveSizeReport.Size library : report.getLibraries()) {
+                if (report.checkBudget("library:" + library.getPath(), library.getCompressedSize(), limit)) {
+                    exceeded = true;
+                    warn(LIBRARY_SIZE_WARNING, library.getPath(), library.getCompressedSize(), limit);
+                }
+            }
+        }
+
+        writeReport(report);
+        if (exceeded && getMode().get() == FAIL) {
+            throw new GradleException("Plugin archive size budget exceeded");
+        }
+    }
+
+    private void warn(String message, Object... args) {
+        if (getMode().get() != IGNORE) {
+            Object[] values = new Object[args.length + 1];
+            values[0] = getPath();
+            System.arraycopy(args, 0, values, 1, args.length);
+            getLogger().warn(message, values);
+        }
+    }
+
+    private void writeReport(ArchiveSizeReport report) {
+        File reportFile = getReport().get().getAsFile();
+        try {
+            Files.write(reportFile.toPath(), report.toJson().getBytes(StandardCharsets.UTF_8));
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure writing plugin archive report", e);
+        }
+    }
+}
@@ -15,9 +15,9 @@
  */
 package com.github.rodm.teamcity.tasks;
 
-import org.apache.tools.ant.filters.ReplaceTokens;
+import com.github.rodm.teamcity.internal.TokenReplacer;
 import org.gradle.api.DefaultTask;
-import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.GradleException;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.MapProperty;
 import org.gradle.api.tasks.CacheableTask;
@@ -28,17 +28,22 @@ import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
 
-import javax.inject.Inject;
-import java.util.Collections;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
 
 @CacheableTask
 public abstract class ProcessDescriptor extends DefaultTask {
 
-    private final FileSystemOperations fileSystemOperations;
+    private static final String UNRESOLVED_TOKEN_WARNING = "{}: Plugin descriptor token '{}' has no value.";
+    private static final String UNUSED_TOKEN_WARNING = "{}: Token '{}' is not used in the plugin descriptor.";
 
-    @Inject
-    public ProcessDescriptor(FileSystemOperations fileSystemOperations) {
-        this.fileSystemOperations = fileSystemOperations;
+    public ProcessDescriptor() {
         setDescription("Processes the plugin descriptor");
         onlyIf(task -> getDescriptor().isPresent());
     }
@@ -55,13 +60,29 @@ public abstract class ProcessDescriptor extends DefaultTask {
 
     @TaskAction
     public void process() {
-        fileSystemOperations.copy(copySpec -> {
-            copySpec.into(getDestination().get().getAsFile().getParentFile());
-            copySpec.from(getDescriptor().get().getAsFile());
-            copySpec.rename(name -> getDestination().get().getAsFile().getName());
-            if (!getTokens().get().isEmpty()) {
-                copySpec.filter(Collections.singletonMap("tokens", getTokens().get()), ReplaceTokens.class);
+        File descriptorFile = getDescriptor().get().getAsFile();
+        File destinationFile = getDestination().get().getAsFile();
+        Map<String, Object> tokens = getTokens().get();
+        try {
+            if (tokens.isEmpty()) {
+                Files.copy(descriptorFile.toPath(), destinationFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                return;
             }
-        });
+            TokenReplacer replacer = new TokenReplacer(tokens);
+            try (Reader reader = Files.newBufferedReader(descriptorFile.toPath(), StandardCharsets.UTF_8);
+                 Writer writer = Files.newBufferedWriter(destinationFile.toPath(), StandardCharsets.UTF_8))
+            {
+                replacer.replace(reader, writer);
+            }
+            for (String token : replacer.getUnresolvedTokens()) {
+                getLogger().warn(UNRESOLVED_TOKEN_WARNING, getPath(), token);
+            }
+            for (String token : replacer.getUnusedTokens()) {
+                getLogger().warn(UNUSED_TOKEN_WARNING, getPath(), token);
+            }
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure processing descriptor", e);
+        }
     }
 }
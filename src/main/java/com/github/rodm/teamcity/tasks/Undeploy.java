@@ -27,6 +27,7 @@ import org.gradle.work.DisableCachingByDefault;
 
 import javax.inject.Inject;
 import java.io.File;
+import java.time.Duration;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -43,6 +44,9 @@ public abstract class Undeploy extends Delete implements ServerConfiguration {
         delete(objects.fileCollection().from(files));
         getServerHost().convention("localhost");
         getServerPort().convention("8111");
+        getRequestTimeout().convention(Duration.ofMinutes(2));
+        getConnectTimeout().convention(Duration.ofSeconds(10));
+        getReadyTimeout().convention(Duration.ZERO);
     }
 
     @Internal
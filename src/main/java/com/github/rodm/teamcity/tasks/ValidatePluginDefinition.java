@@ -0,0 +1,195 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.tasks;
+
+import com.github.rodm.teamcity.ValidationMode;
+import com.github.rodm.teamcity.internal.BeanClassAnalyzer;
+import com.github.rodm.teamcity.internal.ClassIndex;
+import com.github.rodm.teamcity.internal.PluginDefinition;
+import com.github.rodm.teamcity.internal.PluginDefinitionValidationAction;
+import com.github.rodm.teamcity.internal.StreamingPluginDefinition;
+import com.github.rodm.teamcity.internal.XmlReaderCache;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static com.github.rodm.teamcity.ValidationMode.IGNORE;
+
+@CacheableTask
+public abstract class ValidatePluginDefinition extends DefaultTask {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private ClassIndex classIndex;
+
+    public ValidatePluginDefinition() {
+        setDescription("Validates the plugin bean definition files");
+        onlyIf(task -> getMode().get() != IGNORE);
+        onlyIf(task -> getJar().get().getAsFile().exists());
+    }
+
+    /**
+     * @return the jar containing the plugin definition files and classes
+     */
+    @Internal
+    public abstract RegularFileProperty getJar();
+
+    /**
+     * @return the plugin definition files to validate
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getDefinitions();
+
+    /**
+     * @return a fingerprint of the names of the classes in the jar
+     */
+    @Input
+    public Provider<String> getClassesFingerprint() {
+        return getJar().map(jar -> getClassIndex().fingerprint());
+    }
+
+    @Input
+    public abstract Property<ValidationMode> getMode();
+
+    @Input
+    public abstract Property<Boolean> getStreaming();
+
+    /**
+     * @return true if the superclasses and constructor parameter types of the bean classes are checked
+     */
+    @Input
+    public abstract Property<Boolean> getAnalyzeClasses();
+
+    /**
+     * @return the jar when the bean classes are analyzed, as the result then depends on the class contents
+     */
+    @Optional
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public Provider<RegularFile> getAnalyzedJar() {
+        return getJar().flatMap(jar -> getAnalyzeClasses().map(analyze -> analyze ? jar : null));
+    }
+
+    /**
+     * @return the classpath providing classes referenced by the bean classes that are not in the jar
+     */
+    @Classpath
+    public abstract ConfigurableFileCollection getClasspath();
+
+    @Internal
+    public abstract Property<XmlReaderCache> getXmlReaderCache();
+
+    /**
+     * @return the report listing the validation warnings, logged again when the task is up-to-date or its
+     * result is loaded from the build cache
+     */
+    @OutputFile
+    public abstract RegularFileProperty getReport();
+
+    @TaskAction
+    public void validate() {
+        boolean streaming = getStreaming().get();
+        List<PluginDefinition> definitions = getDefinitions().getFiles().stream()
+            .sorted(Comparator.comparing(File::getName))
+            .map(file -> streaming ? new StreamingPluginDefinition(file) : new PluginDefinition(file))
+            .collect(Collectors.toList());
+
+        BeanClassAnalyzer analyzer = getAnalyzeClasses().get()
+            ? new BeanClassAnalyzer(getJar().get().getAsFile(), getClassIndex(), getClasspath())
+            : null;
+        PluginDefinitionValidationAction action = new PluginDefinitionValidationAction(getMode().get(), definitions, getClassIndex(),
+            analyzer, getXmlReaderCache().getOrNull());
+        try {
+            action.execute(this);
+        }
+        finally {
+            closeAnalyzer(analyzer);
+            writeReport(action.getWarnings());
+        }
+    }
+
+    private static void closeAnalyzer(BeanClassAnalyzer analyzer) {
+        if (analyzer != null) {
+            try {
+                analyzer.close();
+            }
+            catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private ClassIndex getClassIndex() {
+        if (classIndex == null) {
+            classIndex = readClassIndex(getJar().get().getAsFile());
+        }
+        return classIndex;
+    }
+
+    private static ClassIndex readClassIndex(File jar) {
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            ClassIndex index = new ClassIndex(zipFile.size());
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory() && entry.getName().endsWith(CLASS_SUFFIX)) {
+                    index.add(entry.getName());
+                }
+            }
+            return index;
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure reading classes from " + jar, e);
+        }
+    }
+
+    private void writeReport(List<String> warnings) {
+        File reportFile = getReport().get().getAsFile();
+        try {
+            Files.write(reportFile.toPath(), warnings, StandardCharsets.UTF_8);
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure writing validation report", e);
+        }
+    }
+}
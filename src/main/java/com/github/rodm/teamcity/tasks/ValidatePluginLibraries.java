@@ -0,0 +1,101 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity.tasks;
+
+import com.github.rodm.teamcity.ValidationMode;
+import com.github.rodm.teamcity.internal.LibraryIndexCache;
+import com.github.rodm.teamcity.internal.PluginLibrariesValidationAction;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.rodm.teamcity.ValidationMode.IGNORE;
+
+@CacheableTask
+public abstract class ValidatePluginLibraries extends DefaultTask {
+
+    private static final String JAR_SUFFIX = ".jar";
+
+    public ValidatePluginLibraries() {
+        setDescription("Checks the plugin libraries for duplicate classes and split packages");
+        onlyIf(task -> getMode().get() != IGNORE);
+    }
+
+    /**
+     * @return the libraries packaged in the plugin, only jar files are checked
+     */
+    @Classpath
+    public abstract ConfigurableFileCollection getLibraries();
+
+    @Input
+    public abstract Property<ValidationMode> getMode();
+
+    @Internal
+    public abstract Property<LibraryIndexCache> getLibraryIndexCache();
+
+    /**
+     * @return the report listing the validation warnings, logged again when the task is up-to-date or its
+     * result is loaded from the build cache
+     */
+    @OutputFile
+    public abstract RegularFileProperty getReport();
+
+    @TaskAction
+    public void validate() {
+        List<File> libraries = new ArrayList<>();
+        List<List<String>> classes = new ArrayList<>();
+        LibraryIndexCache cache = getLibraryIndexCache().get();
+        for (File file : getLibraries()) {
+            if (file.isFile() && file.getName().endsWith(JAR_SUFFIX)) {
+                libraries.add(file);
+                classes.add(cache.getClasses(file));
+            }
+        }
+
+        PluginLibrariesValidationAction action = new PluginLibrariesValidationAction(getMode().get(), libraries, classes);
+        try {
+            action.execute(this);
+        }
+        finally {
+            writeReport(action.getWarnings());
+        }
+    }
+
+    private void writeReport(List<String> warnings) {
+        File reportFile = getReport().get().getAsFile();
+        try {
+            Files.write(reportFile.toPath(), warnings, StandardCharsets.UTF_8);
+        }
+        catch (IOException e) {
+            throw new GradleException("Failure writing validation report", e);
+        }
+    }
+}
@@ -43,6 +43,7 @@ import static org.hamcrest.Matchers.is
 import static org.hamcrest.Matchers.isA
 import static org.hamcrest.Matchers.notNullValue
 import static org.hamcrest.Matchers.nullValue
+import static org.hamcrest.Matchers.sameInstance
 import static org.junit.jupiter.api.Assertions.assertThrows
 
 @SuppressWarnings('ConfigurationAvoidance')
@@ -352,6 +353,45 @@ class AgentConfigurationTest extends ConfigurationTestCase {
         assertThat(contents, containsString('plugin-name-àéîöū'))
     }
 
+    @Test
+    void 'generator task does not rewrite an unchanged descriptor'() {
+        project.teamcity {
+            agent {
+                descriptor {
+                    pluginDeployment {}
+                }
+            }
+        }
+        File outputDir = createDirectory(projectDir.resolve('build/descriptor/agent'))
+        def task = project.tasks.getByName('generateAgentDescriptor') as GenerateAgentPluginDescriptor
+        task.generateDescriptor()
+        File descriptorFile = new File(outputDir, 'teamcity-plugin.xml')
+        descriptorFile.setLastModified(1000L)
+
+        task.generateDescriptor()
+
+        assertThat(descriptorFile.lastModified(), equalTo(1000L))
+    }
+
+    @Test
+    void 'generator task writes the descriptor generated for the task input'() {
+        project.teamcity {
+            agent {
+                descriptor {
+                    pluginDeployment {}
+                }
+            }
+        }
+        File outputDir = createDirectory(projectDir.resolve('build/descriptor/agent'))
+        def task = project.tasks.getByName('generateAgentDescriptor') as GenerateAgentPluginDescriptor
+        String contents = task.descriptorContents.get()
+
+        task.generateDescriptor()
+
+        assertThat(task.descriptorContents.get(), is(sameInstance(contents)))
+        assertThat(new File(outputDir, 'teamcity-plugin.xml').text, equalTo(contents))
+    }
+
     @Test
     void agentPluginDescriptorReplacementTokens() {
         project.teamcity {
@@ -506,6 +546,10 @@ class AgentConfigurationTest extends ConfigurationTestCase {
 
         AgentPlugin agentPlugin = project.tasks.getByName('alternativeAgentPlugin') as AgentPlugin
         assertThat(agentPlugin, hasAction(PluginDescriptorValidationAction))
-        assertThat(agentPlugin, hasAction(PluginExecutableFilesValidationAction))
+        def validationAction = agentPlugin.taskActions
+            .findAll { it.hasProperty('action') }
+            .collect { it.action }
+            .find { it instanceof PluginDescriptorValidationAction } as PluginDescriptorValidationAction
+        assertThat(validationAction.checks, hasItem(isA(PluginExecutableFilesValidationAction)))
     }
 }
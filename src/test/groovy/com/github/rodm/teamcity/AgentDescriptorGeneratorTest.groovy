@@ -24,6 +24,7 @@ import org.junit.jupiter.api.io.TempDir
 import javax.xml.XMLConstants
 
 import static XPathMatcher.hasXPath
+import static com.github.rodm.teamcity.TestSupport.withoutWhitespaceLines
 import static org.hamcrest.MatcherAssert.assertThat
 import static org.hamcrest.Matchers.equalTo
 import static org.hamcrest.Matchers.not
@@ -182,4 +183,43 @@ class AgentDescriptorGeneratorTest {
 
         assertThat(writer.toString(), hasXPath('//dependencies/tool/@name', equalTo('tool-name')))
     }
+
+    @Test
+    void 'writes indented descriptor'() {
+        descriptor.pluginDeployment {
+            useSeparateClassloader = true
+            executableFiles {
+                include 'bin/run.sh'
+            }
+        }
+        descriptor.dependencies {
+            tool 'tool1'
+        }
+
+        generator.writeTo(writer)
+
+        String expected = """<?xml version="1.0" encoding="UTF-8"?><teamcity-agent-plugin xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance" xsi:noNamespaceSchemaLocation="urn:schemas-jetbrains-com:teamcity-agent-plugin-v1-xml">
+  <plugin-deployment use-separate-classloader="true">
+    <layout>
+      <executable-files>
+        <include name="bin/run.sh"/>
+      </executable-files>
+    </layout>
+  </plugin-deployment>
+  <dependencies>
+    <tool name="tool1"/>
+  </dependencies>
+</teamcity-agent-plugin>
+"""
+        assertThat(withoutWhitespaceLines(writer.toString()), equalTo(expected))
+    }
+
+    @Test
+    void 'writes empty root element without deployment or dependencies'() {
+        generator.writeTo(writer)
+
+        String expected = """<?xml version="1.0" encoding="UTF-8"?><teamcity-agent-plugin xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance" xsi:noNamespaceSchemaLocation="urn:schemas-jetbrains-com:teamcity-agent-plugin-v1-xml"/>
+"""
+        assertThat(writer.toString(), equalTo(expected))
+    }
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity
+
+import com.github.rodm.teamcity.internal.ArchiveDelta
+import com.github.rodm.teamcity.internal.ArchiveManifest
+import com.github.rodm.teamcity.tasks.AgentPluginDelta
+import org.gradle.api.Project
+import org.gradle.testfixtures.ProjectBuilder
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.extension.RegisterExtension
+import org.junit.jupiter.api.io.TempDir
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+import static org.hamcrest.CoreMatchers.containsString
+import static org.hamcrest.CoreMatchers.equalTo
+import static org.hamcrest.CoreMatchers.is
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.contains
+import static org.hamcrest.Matchers.empty
+
+class AgentPluginDeltaTest {
+
+    private final ResettableOutputEventListener outputEventListener = new ResettableOutputEventListener()
+
+    @RegisterExtension
+    public final ConfigureLogging logging = new ConfigureLogging(outputEventListener)
+
+    private Project project
+
+    @BeforeEach
+    void setup(@TempDir File projectDir) {
+        project = ProjectBuilder.builder().withProjectDir(projectDir).build()
+    }
+
+    private File createArchive(String name, Map<String, String> entries) {
+        File archive = project.file(name)
+        new ZipOutputStream(new FileOutputStream(archive)).withCloseable { out ->
+            entries.each { path, contents ->
+                out.putNextEntry(new ZipEntry(path))
+                out.write(contents.bytes)
+                out.closeEntry()
+            }
+        }
+        return archive
+    }
+
+    private File createPreviousArchive() {
+        createArchive('previous.zip', [
+            'teamcity-plugin.xml': '<teamcity-agent-plugin/>',
+            'lib/plugin-agent.jar': 'agent 1',
+            'lib/common-1.0.jar': 'common 1.0',
+            'lib/library-1.0-20210101.jar': 'snapshot',
+            'lib/removed.jar': 'removed'])
+    }
+
+    private File createCurrentArchive() {
+        createArchive('current.zip', [
+            'teamcity-plugin.xml': '<teamcity-agent-plugin/>',
+            'lib/plugin-agent.jar': 'agent 2',
+            'lib/common-1.1.jar': 'common 1.1',
+            'lib/library-1.0-20210202.jar': 'snapshot',
+            'lib/added.jar': 'added'])
+    }
+
+    @Test
+    void 'manifest lists hash and size of each entry'() {
+        File archive = createArchive('plugin.zip', ['lib/plugin-agent.jar': 'abc', 'teamcity-plugin.xml': ''])
+
+        def manifest = ArchiveManifest.read(archive)
+
+        assertThat(manifest.toLines(), contains(
+            'ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad 3 lib/plugin-agent.jar',
+            'e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855 0 teamcity-plugin.xml'))
+    }
+
+    @Test
+    void 'delta reports added, removed, modified, renamed and updated entries'() {
+        def previous = ArchiveManifest.read(createPreviousArchive())
+        def current = ArchiveManifest.read(createCurrentArchive())
+
+        def delta = ArchiveDelta.compare(previous, current)
+
+        assertThat(delta.toLines(), contains(
+            'A lib/added.jar',
+            'U lib/common-1.0.jar -> lib/common-1.1.jar',
+            'R lib/library-1.0-20210101.jar -> lib/library-1.0-20210202.jar',
+            'M lib/plugin-agent.jar',
+            'D lib/removed.jar'))
+        assertThat(delta.unchanged, equalTo(1))
+        assertThat(delta.changedSize, equalTo(22L))
+    }
+
+    @Test
+    void 'delta keeps previous names of renamed libraries'() {
+        def previous = ArchiveManifest.read(createPreviousArchive())
+        def current = ArchiveManifest.read(createCurrentArchive())
+
+        def delta = ArchiveDelta.compare(previous, current)
+
+        assertThat(delta.stableLibraryNames, equalTo(['lib/library-1.0-20210202.jar': 'lib/library-1.0-20210101.jar']))
+    }
+
+    @Test
+    void 'delta of unchanged archives is empty'() {
+        def previous = ArchiveManifest.read(createPreviousArchive())
+
+        def delta = ArchiveDelta.compare(previous, previous)
+
+        assertThat(delta.changes, is(empty()))
+        assertThat(delta.unchanged, equalTo(5))
+    }
+
+    @Test
+    void 'delta task writes manifest and report'() {
+        project.file('build/teamcity').mkdirs()
+        def task = project.tasks.create('delta', AgentPluginDelta) { task ->
+            task.previousArchive.set(createPreviousArchive())
+            task.archive.set(createCurrentArchive())
+            task.manifest.set(project.file('build/teamcity/manifest.txt'))
+            task.report.set(project.file('build/teamcity/delta.txt'))
+        }
+
+        task.compare()
+
+        assertThat(project.file('build/teamcity/manifest.txt').readLines().size(), equalTo(5))
+        assertThat(project.file('build/teamcity/delta.txt').readLines(), contains(
+            'A lib/added.jar',
+            'U lib/common-1.0.jar -> lib/common-1.1.jar',
+            'R lib/library-1.0-20210101.jar -> lib/library-1.0-20210202.jar',
+            'M lib/plugin-agent.jar',
+            'D lib/removed.jar'))
+        assertThat(outputEventListener.toString(), containsString(':delta: 5 entries changed, 1 unchanged, 5 libraries changed'))
+    }
+
+    @Test
+    void 'delta task reports all entries as added without a previous archive'() {
+        project.file('build/teamcity').mkdirs()
+        def task = project.tasks.create('delta', AgentPluginDelta) { task ->
+            task.archive.set(createCurrentArchive())
+            task.manifest.set(project.file('build/teamcity/manifest.txt'))
+            task.report.set(project.file('build/teamcity/delta.txt'))
+        }
+
+        task.compare()
+
+        assertThat(project.file('build/teamcity/delta.txt').readLines().size(), equalTo(5))
+        assertThat(project.file('build/teamcity/delta.txt').readLines().every { it.startsWith('A ') }, is(true))
+    }
+
+    @Test
+    void 'delta task extracts layout with stable library names'() {
+        project.file('build/teamcity').mkdirs()
+        File layoutDir = project.file('build/layout')
+        project.file('build/layout/lib/stale.jar').with {
+            parentFile.mkdirs()
+            text = 'stale'
+        }
+        def task = project.tasks.create('delta', AgentPluginDelta) { task ->
+            task.previousArchive.set(createPreviousArchive())
+            task.archive.set(createCurrentArchive())
+            task.manifest.set(project.file('build/teamcity/manifest.txt'))
+            task.report.set(project.file('build/teamcity/delta.txt'))
+            task.layout.set(layoutDir)
+        }
+
+        task.compare()
+
+        def libraries = new File(layoutDir, 'lib').list().sort()
+        assertThat(libraries as List, contains('added.jar', 'common-1.1.jar', 'library-1.0-20210101.jar', 'plugin-agent.jar'))
+        assertThat(new File(layoutDir, 'teamcity-plugin.xml').text, equalTo('<teamcity-agent-plugin/>'))
+    }
+
+    @Test
+    void 'agent plugin applies delta task'() {
+        project.pluginManager.apply(TeamCityAgentPlugin)
+
+        def task = project.tasks.getByName('agentPluginDelta') as AgentPluginDelta
+
+        assertThat(task.manifest.get().asFile, equalTo(project.file('build/teamcity/agent-plugin-manifest.txt')))
+        assertThat(task.report.get().asFile, equalTo(project.file('build/teamcity/agent-plugin-delta.txt')))
+        assertThat(task.previousArchive.isPresent(), is(false))
+    }
+}
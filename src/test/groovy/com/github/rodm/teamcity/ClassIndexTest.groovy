@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity
+
+import com.github.rodm.teamcity.internal.ClassIndex
+import org.junit.jupiter.api.Test
+
+import static org.hamcrest.CoreMatchers.equalTo
+import static org.hamcrest.CoreMatchers.is
+import static org.hamcrest.CoreMatchers.not
+import static org.hamcrest.MatcherAssert.assertThat
+
+class ClassIndexTest {
+
+    @Test
+    void 'contains class added by path'() {
+        ClassIndex index = new ClassIndex()
+
+        index.add('com/example/Plugin.class')
+
+        assertThat(index.contains('com.example.Plugin'), is(true))
+        assertThat(index.contains('com.example.Other'), is(false))
+    }
+
+    @Test
+    void 'contains class added by path segments'() {
+        ClassIndex index = new ClassIndex()
+
+        index.add(['com', 'example', 'Plugin$Inner.class'] as String[])
+
+        assertThat(index.contains('com.example.Plugin$Inner'), is(true))
+        assertThat(index.contains('com.example.Plugin'), is(false))
+    }
+
+    @Test
+    void 'adding the same class twice is ignored'() {
+        ClassIndex index = new ClassIndex()
+
+        index.add('com/example/Plugin.class')
+        index.add(['com', 'example', 'Plugin.class'] as String[])
+
+        assertThat(index.size(), equalTo(1))
+    }
+
+    @Test
+    void 'fingerprint does not depend on the order classes are added'() {
+        ClassIndex index1 = new ClassIndex()
+        index1.add('com/example/Plugin.class')
+        index1.add('com/example/Other.class')
+        ClassIndex index2 = new ClassIndex()
+        index2.add('com/example/Other.class')
+        index2.add('com/example/Plugin.class')
+
+        assertThat(index1.fingerprint(), equalTo(index2.fingerprint()))
+    }
+
+    @Test
+    void 'fingerprint changes when classes change'() {
+        ClassIndex index1 = new ClassIndex()
+        index1.add('com/example/Plugin.class')
+        ClassIndex index2 = new ClassIndex()
+        index2.add('com/example/Other.class')
+
+        assertThat(index1.fingerprint(), not(equalTo(index2.fingerprint())))
+    }
+
+    @Test
+    void 'index grows beyond initial capacity'() {
+        ClassIndex index = new ClassIndex(16)
+
+        for (int i = 0; i < 10000; i++) {
+            index.add("com/example/p${i % 10}/Class${i}.class".toString())
+        }
+
+        assertThat(index.size(), equalTo(10000))
+        assertThat(index.contains('com.example.p3.Class9993'), is(true))
+        assertThat(index.contains('com.example.p4.Class9993'), is(false))
+    }
+}
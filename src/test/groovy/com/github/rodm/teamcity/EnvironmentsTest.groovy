@@ -17,8 +17,10 @@ package com.github.rodm.teamcity
 
 import com.github.rodm.teamcity.internal.DisablePluginAction
 import com.github.rodm.teamcity.docker.DockerSupport
+import com.github.rodm.teamcity.internal.DeployedPluginsManifest
 import com.github.rodm.teamcity.internal.EnablePluginAction
 import com.github.rodm.teamcity.internal.PluginAction
+import com.github.rodm.teamcity.internal.ServerReadiness
 import com.github.rodm.teamcity.tasks.Deploy
 import com.github.rodm.teamcity.tasks.DownloadTeamCity
 import com.github.rodm.teamcity.tasks.InstallTeamCity
@@ -31,7 +33,9 @@ import com.github.rodm.teamcity.tasks.StopDockerAgent
 import com.github.rodm.teamcity.tasks.StopDockerServer
 import com.github.rodm.teamcity.tasks.StopLocalServer
 import com.github.rodm.teamcity.internal.TeamCityTask
+import com.github.rodm.teamcity.internal.UpdateDeployedPluginsAction
 import com.github.rodm.teamcity.tasks.Undeploy
+import org.gradle.api.GradleException
 import org.gradle.api.InvalidUserDataException
 import org.gradle.api.Project
 import org.gradle.api.Task
@@ -52,8 +56,11 @@ import org.junit.jupiter.api.function.Executable
 import org.junit.jupiter.api.io.TempDir
 import org.slf4j.helpers.MessageFormatter
 
+import com.sun.net.httpserver.HttpServer
+
 import java.nio.file.Files
 import java.nio.file.Path
+import java.time.Duration
 import java.util.zip.ZipEntry
 import java.util.zip.ZipOutputStream
 
@@ -73,6 +80,7 @@ import static org.hamcrest.Matchers.hasItem
 import static org.hamcrest.Matchers.hasSize
 import static org.hamcrest.Matchers.is
 import static org.hamcrest.Matchers.isA
+import static org.hamcrest.Matchers.lessThanOrEqualTo
 import static org.hamcrest.Matchers.not
 import static org.hamcrest.Matchers.notNullValue
 import static org.hamcrest.Matchers.startsWith
@@ -511,6 +519,7 @@ class EnvironmentsTest {
             Copy deployPlugin = project.tasks.getByName('deployToTest') as Copy
             assertThat(deployPlugin, hasAction(DisablePluginAction))
             assertThat(deployPlugin, hasAction(EnablePluginAction))
+            assertThat(deployPlugin, hasAction(UpdateDeployedPluginsAction))
         }
 
         @Test
@@ -542,6 +551,7 @@ class EnvironmentsTest {
 
             Delete undeployPlugin = project.tasks.getByName('undeployFromTest') as Delete
             assertThat(undeployPlugin, hasAction(DisablePluginAction))
+            assertThat(undeployPlugin, hasAction(UpdateDeployedPluginsAction))
         }
 
         @Test
@@ -1775,6 +1785,116 @@ class EnvironmentsTest {
         assertThat('partially unloaded plugin should be in reload list', unloaded, hasItem(pluginName))
     }
 
+    private File deployPlugin(File pluginFile, DeployedPluginsManifest manifest) {
+        File pluginDir = createDirectory(projectDir.resolve('plugins'))
+        Files.copy(pluginFile.toPath(), pluginDir.toPath().resolve(pluginFile.name))
+        manifest.update([pluginFile])
+        return pluginDir
+    }
+
+    @Test
+    void 'deployed plugins manifest records unchanged plugins'() {
+        def manifest = new DeployedPluginsManifest(projectDir.toFile())
+        File pluginFile = createFile(projectDir.resolve('test-plugin.zip'))
+        pluginFile.text = 'version 1'
+        assertFalse(manifest.isUnchanged(pluginFile))
+
+        deployPlugin(pluginFile, manifest)
+
+        assertTrue(manifest.isUnchanged(pluginFile))
+        assertTrue(new DeployedPluginsManifest(projectDir.toFile()).isUnchanged(pluginFile))
+    }
+
+    @Test
+    void 'deployed plugins manifest detects changed plugins'() {
+        def manifest = new DeployedPluginsManifest(projectDir.toFile())
+        File pluginFile = createFile(projectDir.resolve('test-plugin.zip'))
+        pluginFile.text = 'version 1'
+        deployPlugin(pluginFile, manifest)
+
+        pluginFile.text = 'version 2'
+        pluginFile.lastModified = pluginFile.lastModified() + 2000
+
+        assertFalse(manifest.isUnchanged(pluginFile))
+    }
+
+    @Test
+    void 'deployed plugins manifest detects removed or replaced deployed plugins'() {
+        def manifest = new DeployedPluginsManifest(projectDir.toFile())
+        File pluginFile = createFile(projectDir.resolve('test-plugin.zip'))
+        pluginFile.text = 'version 1'
+        File pluginDir = deployPlugin(pluginFile, manifest)
+
+        new File(pluginDir, 'test-plugin.zip').text = 'other version'
+        assertFalse(manifest.isUnchanged(pluginFile))
+
+        new File(pluginDir, 'test-plugin.zip').delete()
+        assertFalse(manifest.isUnchanged(pluginFile))
+    }
+
+    @Test
+    void 'deployed plugins manifest removes undeployed plugins'() {
+        def manifest = new DeployedPluginsManifest(projectDir.toFile())
+        File pluginFile = createFile(projectDir.resolve('test-plugin.zip'))
+        pluginFile.text = 'version 1'
+        deployPlugin(pluginFile, manifest)
+
+        manifest.remove([pluginFile])
+
+        assertFalse(manifest.isUnchanged(pluginFile))
+        assertThat(manifest.manifestFile.text, not(containsString('test-plugin.zip')))
+    }
+
+    @Test
+    void 'disable plugin request not sent for an unchanged plugin'() {
+        def manifest = new DeployedPluginsManifest(projectDir.toFile())
+        File pluginFile = createFile(projectDir.resolve('test-plugin.zip'))
+        pluginFile.text = 'version 1'
+        File pluginDir = deployPlugin(pluginFile, manifest)
+        def deploy = project.tasks.create('deploy', Deploy) {
+            from { "${pluginFile.name}" }
+            into { pluginDir }
+        }
+        Set<File> plugins = [pluginFile] as Set
+        List<String> unloaded = []
+        def action = new DisablePluginAction(project.logger, projectDir.toFile(), plugins, unloaded, manifest) {
+            void executeAction(String pluginName, String host, int port) {
+                EnvironmentsTest.this.wasRequestSent = true
+            }
+        }
+
+        action.execute(deploy)
+
+        assertFalse(wasRequestSent)
+        assertThat('unchanged plugin does not require enabling', unloaded, hasSize(0))
+        assertThat(outputEventListener.toString(), containsString("Plugin 'test-plugin.zip' is unchanged, skipped reloading"))
+    }
+
+    @Test
+    void 'disable plugin request sent for a changed plugin'() {
+        def manifest = new DeployedPluginsManifest(projectDir.toFile())
+        File pluginFile = createFile(projectDir.resolve('test-plugin.zip'))
+        pluginFile.text = 'version 1'
+        File pluginDir = deployPlugin(pluginFile, manifest)
+        pluginFile.text = 'version 2'
+        pluginFile.lastModified = pluginFile.lastModified() + 2000
+        def deploy = project.tasks.create('deploy', Deploy) {
+            from { "${pluginFile.name}" }
+            into { pluginDir }
+        }
+        Set<File> plugins = [pluginFile] as Set
+        List<String> unloaded = []
+        def action = new DisablePluginAction(project.logger, projectDir.toFile(), plugins, unloaded, manifest) {
+            void executeAction(String pluginName, String host, int port) {
+                EnvironmentsTest.this.wasRequestSent = true
+            }
+        }
+
+        action.execute(deploy)
+
+        assertTrue(wasRequestSent)
+    }
+
     @Test
     void 'enable plugin request not sent if plugin was not disabled'() {
         def pluginName = 'test-plugin.zip'
@@ -1836,6 +1956,309 @@ class EnvironmentsTest {
         void sendRequest(HttpURLConnection request, String pluginName) {}
     }
 
+    class SessionTestPluginAction extends PluginAction {
+
+        int serverChecks = 0
+        long readyDelay = 0
+        List<Thread> checkThreads = Collections.synchronizedList([])
+        List<String> pluginNames = Collections.synchronizedList([])
+        Set<String> threadNames = Collections.synchronizedSet([] as Set)
+
+        SessionTestPluginAction(Logger logger, File dataDir, Set<File> plugins) {
+            super(logger, dataDir, plugins, [], true)
+        }
+
+        @Override
+        boolean canExecuteAction(Task task, String name) {
+            return !name.startsWith('skip')
+        }
+
+        @Override
+        void sendRequest(HttpURLConnection request, String pluginName) {
+            pluginNames.add(pluginName)
+            threadNames.add(Thread.currentThread().name)
+        }
+
+        @Override
+        synchronized boolean isServerAvailable(String host, int port) {
+            serverChecks++
+            checkThreads.add(Thread.currentThread())
+            if (readyDelay > 0) {
+                Thread.sleep(readyDelay)
+            }
+            return true
+        }
+    }
+
+    private SessionTestPluginAction createSessionTestPluginAction(List<String> names) {
+        Set<File> plugins = names.collect { name -> createFile(projectDir.resolve(name)) } as Set
+        new SessionTestPluginAction(project.logger, projectDir.toFile(), plugins)
+    }
+
+    @Test @SuppressWarnings('GroovyAccessibility')
+    void 'plugin action checks server and reads maintenance token once for all plugins'() {
+        createMaintenanceTokenFile()
+        def names = (1..10).collect { "plugin-${it}.zip".toString() }
+        def deploy = project.tasks.create('deploy', Deploy)
+        def action = createSessionTestPluginAction(names)
+
+        action.execute(deploy)
+
+        assertThat(action.serverChecks, equalTo(1))
+        assertThat(action.pluginNames.sort(), equalTo(names.sort()))
+        assertThat(action.threadNames.size(), is(lessThanOrEqualTo(PluginAction.MAX_CONCURRENT_REQUESTS)))
+    }
+
+    @Test
+    void 'plugin action waits for the server to be ready longer than the request timeout'() {
+        createMaintenanceTokenFile()
+        def names = (1..10).collect { "plugin-${it}.zip".toString() }
+        def deploy = project.tasks.create('deploy', Deploy) {
+            requestTimeout = Duration.ofMillis(100)
+            readyTimeout = Duration.ofSeconds(5)
+        }
+        def action = createSessionTestPluginAction(names)
+        // the server becomes ready after the requests would have timed out
+        action.readyDelay = 1000
+
+        action.execute(deploy)
+
+        assertThat(action.serverChecks, equalTo(1))
+        assertThat(action.checkThreads, equalTo([Thread.currentThread()]))
+        assertThat(action.pluginNames.sort(), equalTo(names.sort()))
+    }
+
+    @Test
+    void 'plugin action does not check server when no plugins require the action'() {
+        createMaintenanceTokenFile()
+        def deploy = project.tasks.create('deploy', Deploy)
+        def action = createSessionTestPluginAction(['skip-plugin.zip'])
+
+        action.execute(deploy)
+
+        assertThat(action.serverChecks, equalTo(0))
+        assertThat(action.pluginNames, hasSize(0))
+    }
+
+    @Test
+    void 'plugin action warns once when maintenance token file is not available'() {
+        def deploy = project.tasks.create('deploy', Deploy)
+        def action = createSessionTestPluginAction(['plugin-1.zip', 'plugin-2.zip', 'plugin-3.zip'])
+
+        action.execute(deploy)
+
+        assertThat(action.pluginNames, hasSize(0))
+        def output = outputEventListener.toString()
+        assertThat(output.count('Maintenance token file does not exist'), equalTo(1))
+    }
+
+    @Test
+    void 'plugin action checks server again for each execution'() {
+        createMaintenanceTokenFile()
+        def deploy = project.tasks.create('deploy', Deploy)
+        def action = createSessionTestPluginAction(['plugin-1.zip', 'plugin-2.zip'])
+
+        action.execute(deploy)
+        action.execute(deploy)
+
+        assertThat(action.serverChecks, equalTo(2))
+    }
+
+    @Test
+    void 'plugin action fails when the server does not respond within the request timeout'() {
+        createMaintenanceTokenFile()
+        File pluginDir = createDirectory(projectDir.resolve('plugins'))
+        Set<File> plugins = ['plugin-1.zip', 'plugin-2.zip'].collect { name -> createFile(pluginDir.toPath().resolve(name)) } as Set
+        def connections = []
+        new ServerSocket(0).withCloseable { server ->
+            // responds to the readiness check but not to the plugin requests
+            Thread.startDaemon {
+                try {
+                    while (true) {
+                        Socket socket = server.accept()
+                        connections << socket
+                        Thread.startDaemon {
+                            def reader = new BufferedReader(new InputStreamReader(socket.inputStream))
+                            if (reader.readLine()?.startsWith('GET')) {
+                                while (reader.readLine()) {
+                                }
+                                socket.outputStream.write('HTTP/1.1 200 OK\r\nContent-Length: 0\r\nConnection: close\r\n\r\n'.bytes)
+                                socket.close()
+                            }
+                        }
+                    }
+                }
+                catch (SocketException ignored) {
+                }
+            }
+            def deploy = project.tasks.create('deploy', Deploy) {
+                serverPort = server.localPort.toString()
+                requestTimeout = Duration.ofMillis(500)
+            }
+            def action = new DisablePluginAction(project.logger, projectDir.toFile(), plugins, [])
+
+            def e = assertThrows(GradleException) { action.execute(deploy) }
+
+            assertThat(e.message, containsString('Timed out waiting for response from server'))
+        }
+    }
+
+    @Test
+    void 'deploy task copies plugins directly by default'() {
+        def deploy = project.tasks.create('deploy', Deploy)
+
+        assertThat(deploy.atomic.get(), is(false))
+        assertThat(deploy.hardLinks.get(), is(false))
+    }
+
+    @Test
+    void 'atomic deploy replaces plugins and removes staging directory'() {
+        File pluginFile = createFile(projectDir.resolve('build/test-plugin.zip'))
+        pluginFile.text = 'new plugin'
+        File pluginDir = createDirectory(projectDir.resolve('data/plugins'))
+        new File(pluginDir, 'test-plugin.zip').text = 'old plugin'
+        def deploy = project.tasks.create('deploy', Deploy) {
+            plugins.from(pluginFile)
+            pluginsDir.set(pluginDir)
+            atomic = true
+        }
+
+        deploy.copy()
+
+        assertThat(new File(pluginDir, 'test-plugin.zip').text, equalTo('new plugin'))
+        assertThat(pluginDir.parentFile.list() as List, equalTo(['plugins']))
+        assertThat(deploy.didWork, is(true))
+    }
+
+    @Test
+    void 'deploy with hard links links plugins to the plugin archives'() {
+        File pluginFile = createFile(projectDir.resolve('build/test-plugin.zip'))
+        pluginFile.text = 'new plugin'
+        File pluginDir = createDirectory(projectDir.resolve('data/plugins'))
+        def deploy = project.tasks.create('deploy', Deploy) {
+            plugins.from(pluginFile)
+            pluginsDir.set(pluginDir)
+            hardLinks = true
+        }
+
+        deploy.copy()
+
+        Path deployed = pluginDir.toPath().resolve('test-plugin.zip')
+        assertThat(deployed.toFile().text, equalTo('new plugin'))
+        assertThat(pluginDir.parentFile.list() as List, equalTo(['plugins']))
+        if (Files.getFileStore(deployed).supportsFileAttributeView('unix')) {
+            assertThat(Files.isSameFile(deployed, pluginFile.toPath()), is(true))
+        }
+    }
+
+    @Test
+    void 'deploy and undeploy tasks have a default request timeout'() {
+        def deploy = project.tasks.create('deploy', Deploy)
+        def undeploy = project.tasks.create('undeploy', Undeploy)
+
+        assertThat(deploy.requestTimeout.get(), equalTo(Duration.ofMinutes(2)))
+        assertThat(undeploy.requestTimeout.get(), equalTo(Duration.ofMinutes(2)))
+    }
+
+    @Test
+    void 'deploy and undeploy tasks default to checking the server is ready once'() {
+        def deploy = project.tasks.create('deploy', Deploy)
+        def undeploy = project.tasks.create('undeploy', Undeploy)
+
+        assertThat(deploy.connectTimeout.get(), equalTo(Duration.ofSeconds(10)))
+        assertThat(deploy.readyTimeout.get(), equalTo(Duration.ZERO))
+        assertThat(undeploy.connectTimeout.get(), equalTo(Duration.ofSeconds(10)))
+        assertThat(undeploy.readyTimeout.get(), equalTo(Duration.ZERO))
+    }
+
+    static class CountingServerReadiness extends ServerReadiness {
+        int checks
+        int readyAfter
+
+        CountingServerReadiness(Duration readyTimeout, int readyAfter) {
+            super(Duration.ofSeconds(1), Duration.ofSeconds(1), readyTimeout)
+            this.readyAfter = readyAfter
+        }
+
+        @Override
+        boolean isReady(String host, int port) {
+            return ++checks > readyAfter
+        }
+    }
+
+    @Test
+    void 'server readiness checks the server once when it is ready'() {
+        def readiness = new CountingServerReadiness(Duration.ofSeconds(10), 0)
+
+        def ready = readiness.waitUntilReady('localhost', 8111, project.logger, ':deploy')
+
+        assertThat(ready, is(true))
+        assertThat(readiness.checks, equalTo(1))
+    }
+
+    @Test
+    void 'server readiness retries until the server is ready'() {
+        def readiness = new CountingServerReadiness(Duration.ofSeconds(10), 2)
+
+        def ready = readiness.waitUntilReady('localhost', 8111, project.logger, ':deploy')
+
+        assertThat(ready, is(true))
+        assertThat(readiness.checks, equalTo(3))
+    }
+
+    @Test
+    void 'server readiness with zero ready timeout checks the server once'() {
+        def readiness = new CountingServerReadiness(Duration.ZERO, 5)
+
+        def ready = readiness.waitUntilReady('localhost', 8111, project.logger, ':deploy')
+
+        assertThat(ready, is(false))
+        assertThat(readiness.checks, equalTo(1))
+    }
+
+    @Test
+    void 'server readiness gives up when the ready timeout elapses'() {
+        def readiness = new CountingServerReadiness(Duration.ofMillis(600), Integer.MAX_VALUE)
+
+        def ready = readiness.waitUntilReady('localhost', 8111, project.logger, ':deploy')
+
+        assertThat(ready, is(false))
+        assertThat(readiness.checks, lessThanOrEqualTo(4))
+    }
+
+    @Test
+    void 'server readiness waits while the server responds with service unavailable'() {
+        int requests = 0
+        def server = HttpServer.create(new InetSocketAddress('localhost', 0), 0)
+        server.createContext('/') { exchange ->
+            int status = ++requests < 3 ? 503 : 200
+            exchange.sendResponseHeaders(status, -1)
+            exchange.close()
+        }
+        server.start()
+        try {
+            def readiness = new ServerReadiness(Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(10))
+
+            def ready = readiness.waitUntilReady('localhost', server.address.port, project.logger, ':deploy')
+
+            assertThat(ready, is(true))
+            assertThat(requests, equalTo(3))
+        }
+        finally {
+            server.stop(0)
+        }
+    }
+
+    @Test
+    void 'server readiness is not ready when the server is not running'() {
+        int port = new ServerSocket(0).withCloseable { it.localPort }
+        def readiness = new ServerReadiness(Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ZERO)
+
+        def ready = readiness.waitUntilReady('localhost', port, project.logger, ':deploy')
+
+        assertThat(ready, is(false))
+    }
+
     @Test
     void 'plugin action configured with host and port from deploy task'() {
         def pluginName = 'test-plugin.zip'
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity
+
+import com.github.rodm.teamcity.internal.ArchiveSizeReport
+import com.github.rodm.teamcity.tasks.PluginArchiveReport
+import org.gradle.api.GradleException
+import org.gradle.api.Project
+import org.gradle.testfixtures.ProjectBuilder
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.extension.RegisterExtension
+import org.junit.jupiter.api.io.TempDir
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+import static com.github.rodm.teamcity.GradleMatchers.finalizedBy
+import static com.github.rodm.teamcity.ValidationMode.IGNORE
+import static org.hamcrest.CoreMatchers.containsString
+import static org.hamcrest.CoreMatchers.equalTo
+import static org.hamcrest.CoreMatchers.is
+import static org.hamcrest.CoreMatchers.not
+import static org.hamcrest.CoreMatchers.nullValue
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.contains
+import static org.junit.jupiter.api.Assertions.assertThrows
+
+class PluginArchiveReportTest {
+
+    private final ResettableOutputEventListener outputEventListener = new ResettableOutputEventListener()
+
+    @RegisterExtension
+    public final ConfigureLogging logging = new ConfigureLogging(outputEventListener)
+
+    private Project project
+
+    @BeforeEach
+    void setup(@TempDir File projectDir) {
+        project = ProjectBuilder.builder().withProjectDir(projectDir).build()
+    }
+
+    private File createArchive(String name) {
+        File archive = project.file(name)
+        new ZipOutputStream(new FileOutputStream(archive)).withCloseable { out ->
+            out.putNextEntry(new ZipEntry('teamcity-plugin.xml'))
+            out.write('<teamcity-plugin/>'.bytes)
+            out.closeEntry()
+            out.putNextEntry(new ZipEntry('server/'))
+            out.closeEntry()
+            out.putNextEntry(new ZipEntry('server/plugin.jar'))
+            out.write(new byte[2048])
+            out.closeEntry()
+            out.putNextEntry(new ZipEntry('server/library-1.0.jar'))
+            out.write(new byte[4096])
+            out.closeEntry()
+            out.putNextEntry(new ZipEntry('agent/plugin-agent.zip'))
+            out.write(new byte[512])
+            out.closeEntry()
+        }
+        return archive
+    }
+
+    private PluginArchiveReport createReportTask(File archive) {
+        project.file('build/teamcity').mkdirs()
+        project.tasks.create('report', PluginArchiveReport) { task ->
+            task.archive.set(archive)
+            task.coordinates.put('library-1.0.jar', 'org.example:library:1.0')
+            task.report.set(project.file('build/teamcity/plugin-size.json'))
+        }
+    }
+
+    @Test
+    void 'report lists sizes by directory'() {
+        File archive = createArchive('plugin.zip')
+
+        def report = ArchiveSizeReport.read(archive, [:])
+
+        assertThat(report.directories*.path, contains('', 'agent', 'server'))
+        assertThat(report.directories*.entries, contains(1, 1, 2))
+        assertThat(report.directories.find { it.path == 'server' }.size, equalTo(6144L))
+        assertThat(report.total.entries, equalTo(4))
+        assertThat(report.archiveSize, equalTo(archive.length()))
+    }
+
+    @Test
+    void 'report lists libraries largest first with their coordinates'() {
+        File archive = createArchive('plugin.zip')
+
+        def report = ArchiveSizeReport.read(archive, ['library-1.0.jar': 'org.example:library:1.0'])
+
+        assertThat(report.libraries*.path, contains('server/library-1.0.jar', 'server/plugin.jar', 'agent/plugin-agent.zip'))
+        assertThat(report.libraries[0].coordinate, equalTo('org.example:library:1.0'))
+        assertThat(report.libraries[1].coordinate, is(nullValue()))
+    }
+
+    @Test
+    void 'json report includes sizes, libraries and budgets'() {
+        File archive = createArchive('plugin.zip')
+        def report = ArchiveSizeReport.read(archive, ['library-1.0.jar': 'org.example:library:1.0'])
+        report.checkBudget('archiveSize', report.archiveSize, 100)
+
+        String json = report.toJson()
+
+        assertThat(json, containsString('"archive": "plugin.zip"'))
+        assertThat(json, containsString('"archiveSize": ' + archive.length()))
+        assertThat(json, containsString('{"path": "server", "entries": 2, "compressedSize": '))
+        assertThat(json, containsString('{"path": "server/library-1.0.jar", "coordinate": "org.example:library:1.0", "entries": 1'))
+        assertThat(json, containsString('{"name": "archiveSize", "limit": 100, "actual": ' + archive.length() + ', "exceeded": true}'))
+    }
+
+    @Test
+    void 'json strings are escaped'() {
+        assertThat(ArchiveSizeReport.quote('a "b"\\c\n\u0001'), equalTo('"a \\"b\\"\\\\c\\n\\u0001"'))
+    }
+
+    @Test
+    void 'report task writes report without warnings when no budgets are set'() {
+        def task = createReportTask(createArchive('plugin.zip'))
+
+        task.report()
+
+        String json = project.file('build/teamcity/plugin-size.json').text
+        assertThat(json, containsString('"coordinate": "org.example:library:1.0"'))
+        assertThat(json, containsString('"budgets": []'))
+        assertThat(outputEventListener.toString(), not(containsString('exceeds the budget')))
+    }
+
+    @Test
+    void 'report task warns when budgets are exceeded'() {
+        def task = createReportTask(createArchive('plugin.zip'))
+        task.maxArchiveSize.set(100L)
+        task.maxUncompressedSize.set(1000000L)
+        task.maxLibrarySize.set(1000L)
+
+        task.report()
+
+        String output = outputEventListener.toString()
+        assertThat(output, containsString(':report: Plugin archive size of '))
+        assertThat(output, not(containsString('uncompressed size')))
+        String json = project.file('build/teamcity/plugin-size.json').text
+        assertThat(json, containsString('{"name": "uncompressedSize", "limit": 1000000, "actual": 6674, "exceeded": false}'))
+    }
+
+    @Test
+    void 'report task warns when a library exceeds its budget'() {
+        def task = createReportTask(createArchive('plugin.zip'))
+        task.maxLibrarySize.set(0L)
+
+        task.report()
+
+        String output = outputEventListener.toString()
+        assertThat(output, containsString(":report: Library 'server/library-1.0.jar' size of "))
+        assertThat(output, containsString(":report: Library 'agent/plugin-agent.zip' size of "))
+    }
+
+    @Test
+    void 'report task fails when budgets are exceeded and mode is fail'() {
+        def task = createReportTask(createArchive('plugin.zip'))
+        task.maxArchiveSize.set(100L)
+        task.mode = 'fail'
+
+        def e = assertThrows(GradleException, { task.report() })
+
+        assertThat(e.message, equalTo('Plugin archive size budget exceeded'))
+        assertThat(project.file('build/teamcity/plugin-size.json').text, containsString('"exceeded": true'))
+    }
+
+    @Test
+    void 'report task does not warn when mode is ignore'() {
+        def task = createReportTask(createArchive('plugin.zip'))
+        task.maxArchiveSize.set(100L)
+        task.mode.set(IGNORE)
+
+        task.report()
+
+        assertThat(outputEventListener.toString(), not(containsString('exceeds the budget')))
+    }
+
+    @Test
+    void 'server plugin task is finalized by report task'() {
+        project.pluginManager.apply(TeamCityServerPlugin)
+
+        def task = project.tasks.getByName('serverPlugin')
+
+        assertThat(task, finalizedBy('serverPluginReport'))
+        def report = project.tasks.getByName('serverPluginReport') as PluginArchiveReport
+        assertThat(report.report.get().asFile, equalTo(project.file('build/teamcity/server-plugin-size.json')))
+    }
+
+    @Test
+    void 'agent plugin task is finalized by report task'() {
+        project.pluginManager.apply(TeamCityAgentPlugin)
+
+        def task = project.tasks.getByName('agentPlugin')
+
+        assertThat(task, finalizedBy('agentPluginReport'))
+        def report = project.tasks.getByName('agentPluginReport') as PluginArchiveReport
+        assertThat(report.report.get().asFile, equalTo(project.file('build/teamcity/agent-plugin-size.json')))
+    }
+}
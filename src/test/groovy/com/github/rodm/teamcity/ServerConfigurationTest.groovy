@@ -18,6 +18,7 @@ package com.github.rodm.teamcity
 import com.github.rodm.teamcity.internal.PluginDescriptorContentsValidationAction
 import com.github.rodm.teamcity.internal.PluginDescriptorValidationAction
 import com.github.rodm.teamcity.internal.PublishAction
+import com.github.rodm.teamcity.internal.SharedLibrariesReportAction
 import com.github.rodm.teamcity.internal.SignAction
 import com.github.rodm.teamcity.tasks.GenerateServerPluginDescriptor
 import com.github.rodm.teamcity.tasks.ProcessDescriptor
@@ -49,7 +50,11 @@ import org.jetbrains.intellij.pluginRepository.PluginUploader
 import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Nested
 import org.junit.jupiter.api.Test
+import org.junit.jupiter.params.ParameterizedTest
+import org.junit.jupiter.params.provider.ValueSource
 
+import java.nio.file.Files
+import java.nio.file.Path
 import java.security.KeyPair
 import java.security.KeyPairGenerator
 import java.security.PrivateKey
@@ -58,6 +63,7 @@ import java.security.Security
 import java.security.cert.X509Certificate
 import java.time.LocalDate
 import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
 import java.util.zip.ZipOutputStream
 
 import static com.github.rodm.teamcity.GradleMatchers.hasAction
@@ -74,11 +80,13 @@ import static org.hamcrest.CoreMatchers.hasItem
 import static org.hamcrest.MatcherAssert.assertThat
 import static org.hamcrest.Matchers.greaterThan
 import static org.hamcrest.Matchers.hasEntry
+import static org.hamcrest.Matchers.hasKey
 import static org.hamcrest.Matchers.is
 import static org.hamcrest.Matchers.isA
 import static org.hamcrest.Matchers.notNullValue
 import static org.hamcrest.Matchers.nullValue
 import static org.hamcrest.Matchers.not
+import static org.hamcrest.Matchers.sameInstance
 import static org.junit.jupiter.api.Assertions.assertThrows
 import static org.mockito.ArgumentMatchers.eq
 import static org.mockito.ArgumentMatchers.isNull
@@ -308,6 +316,68 @@ class ServerConfigurationTest extends ConfigurationTestCase {
         assertThat(contents, containsString('àéîöū'))
     }
 
+    @Test
+    void 'generator task does not rewrite an unchanged descriptor'() {
+        project.teamcity {
+            version = '2018.1'
+            server {
+                descriptor {
+                    name = 'test-plugin'
+                }
+            }
+        }
+        File outputDir = createDirectory(projectDir.resolve('build/descriptor/server'))
+        def task = project.tasks.getByName('generateServerDescriptor') as GenerateServerPluginDescriptor
+        task.generateDescriptor()
+        File descriptorFile = new File(outputDir, 'teamcity-plugin.xml')
+        descriptorFile.setLastModified(1000L)
+
+        task.generateDescriptor()
+
+        assertThat(descriptorFile.lastModified(), equalTo(1000L))
+        assertThat(descriptorFile.text, equalTo(task.descriptorContents.get()))
+    }
+
+    @Test
+    void 'generator task writes the descriptor generated for the task input'() {
+        project.teamcity {
+            version = '2018.1'
+            server {
+                descriptor {
+                    name = 'test-plugin'
+                }
+            }
+        }
+        File outputDir = createDirectory(projectDir.resolve('build/descriptor/server'))
+        def task = project.tasks.getByName('generateServerDescriptor') as GenerateServerPluginDescriptor
+        String contents = task.descriptorContents.get()
+
+        task.generateDescriptor()
+
+        assertThat(task.descriptorContents.get(), is(sameInstance(contents)))
+        assertThat(new File(outputDir, 'teamcity-plugin.xml').text, equalTo(contents))
+    }
+
+    @Test
+    void 'generator task rewrites a changed descriptor'() {
+        project.teamcity {
+            version = '2018.1'
+            server {
+                descriptor {
+                    name = 'test-plugin'
+                }
+            }
+        }
+        File outputDir = createDirectory(projectDir.resolve('build/descriptor/server'))
+        File descriptorFile = new File(outputDir, 'teamcity-plugin.xml')
+        descriptorFile.text = '<teamcity-plugin/>'
+
+        def task = project.tasks.getByName('generateServerDescriptor') as GenerateServerPluginDescriptor
+        task.generateDescriptor()
+
+        assertThat(descriptorFile.text, containsString('<name>test-plugin</name>'))
+    }
+
     @Test
     void 'allow server descriptor configuration to be created from multiple configuration blocks'() {
         project.teamcity {
@@ -382,6 +452,33 @@ class ServerConfigurationTest extends ConfigurationTestCase {
         assertThat(contents, containsString('456'))
     }
 
+    @Test
+    void 'process descriptor warns about unresolved and unused tokens'() {
+        project.teamcity {
+            server {
+                descriptor = project.file('teamcity-plugin.xml')
+                tokens VERSION: '1.2.3', VENDOR_NAME: 'rodm'
+            }
+        }
+        File descriptorFile = createFile(projectDir.resolve('teamcity-plugin.xml'))
+        descriptorFile << """<?xml version="1.0" encoding="UTF-8"?>
+            <teamcity-plugin>
+                <info>
+                    <version>@VERSION@</version>
+                    <description>@DESCRIPTION@</description>
+                </info>
+            </teamcity-plugin>
+        """
+
+        createDirectory(projectDir.resolve('build/descriptor/server'))
+        def task = project.tasks.getByName('processServerDescriptor') as ProcessDescriptor
+        task.process()
+
+        String output = outputEventListener.toString()
+        assertThat(output, containsString("Plugin descriptor token 'DESCRIPTION' has no value."))
+        assertThat(output, containsString("Token 'VENDOR_NAME' is not used in the plugin descriptor."))
+    }
+
     @Test @SuppressWarnings('GroovyAccessibility')
     void 'server plugin archive includes additional files'() {
         project.teamcity {
@@ -408,6 +505,198 @@ class ServerConfigurationTest extends ConfigurationTestCase {
         assertThat(entries, hasItem('files/file2.txt'))
     }
 
+    @Test
+    void 'server plugin archive uses the default archive settings'() {
+        def task = project.tasks.getByName('serverPlugin') as ServerPlugin
+        def zip = project.tasks.create('zip', Zip)
+
+        assertThat(task.reproducibleFileOrder, equalTo(zip.reproducibleFileOrder))
+        assertThat(task.preserveFileTimestamps, equalTo(zip.preserveFileTimestamps))
+        assertThat(task.parallelCompression.get(), is(false))
+        assertThat(task.storeArchives.get(), is(false))
+        assertThat(task.incremental.get(), is(false))
+    }
+
+    @Test
+    void 'server plugin archive is reproducible when compressed in parallel'() {
+        def task = project.tasks.getByName('serverPlugin') as ServerPlugin
+        task.parallelCompression.set(true)
+
+        assertThat(task.reproducibleFileOrder, is(true))
+        assertThat(task.preserveFileTimestamps, is(false))
+    }
+
+    @Test
+    void 'server plugin archive settings are used when compressed in parallel'() {
+        def task = project.tasks.getByName('serverPlugin') as ServerPlugin
+        task.parallelCompression.set(true)
+        task.reproducibleFileOrder = false
+        task.preserveFileTimestamps = true
+
+        assertThat(task.reproducibleFileOrder, is(false))
+        assertThat(task.preserveFileTimestamps, is(true))
+    }
+
+    @Test
+    void 'server plugin archive compressed in parallel is the same as the default archive'() {
+        project.teamcity {
+            server {
+                files {
+                    into('files') {
+                        from('srcdir')
+                    }
+                }
+            }
+        }
+        createDirectory(projectDir.resolve('srcdir'))
+        (1..20).each { n ->
+            createFile(projectDir.resolve("srcdir/file${n}.txt")) << ('content ' * n * 100)
+        }
+        createDirectory(projectDir.resolve('build/distributions'))
+        def task = project.tasks.getByName('serverPlugin') as ServerPlugin
+        task.copy()
+        Map<String, String> expected = archiveContents(projectDir.resolve('build/distributions/test.zip'))
+
+        task.parallelCompression.set(true)
+        task.copy()
+
+        Map<String, String> actual = archiveContents(projectDir.resolve('build/distributions/test.zip'))
+        assertThat(actual, hasKey('files/file20.txt'))
+        assertThat(actual, equalTo(expected))
+    }
+
+    @Test
+    void 'server plugin archive stores jar and zip files without compressing them'() {
+        project.teamcity {
+            server {
+                files {
+                    into('files') {
+                        from('srcdir')
+                    }
+                }
+            }
+        }
+        createDirectory(projectDir.resolve('srcdir'))
+        createFile(projectDir.resolve('srcdir/library.jar')) << ('jar content ' * 100)
+        createFile(projectDir.resolve('srcdir/agent.ZIP')) << ('zip content ' * 100)
+        createFile(projectDir.resolve('srcdir/file.txt')) << ('text content ' * 100)
+        createDirectory(projectDir.resolve('build/distributions'))
+
+        def task = project.tasks.getByName('serverPlugin') as ServerPlugin
+        task.storeArchives.set(true)
+        task.copy()
+
+        new ZipFile(projectDir.resolve('build/distributions/test.zip').toFile()).withCloseable { zipFile ->
+            assertThat(zipFile.getEntry('files/library.jar').method, equalTo(ZipEntry.STORED))
+            assertThat(zipFile.getEntry('files/agent.ZIP').method, equalTo(ZipEntry.STORED))
+            assertThat(zipFile.getEntry('files/file.txt').method, equalTo(ZipEntry.DEFLATED))
+            assertThat(zipFile.getInputStream(zipFile.getEntry('files/library.jar')).text, equalTo('jar content ' * 100))
+        }
+    }
+
+    @Test
+    void 'server plugin archive updated incrementally contains the changed files'() {
+        project.teamcity {
+            server {
+                files {
+                    into('files') {
+                        from('srcdir')
+                    }
+                }
+            }
+        }
+        createDirectory(projectDir.resolve('srcdir'))
+        (1..10).each { n ->
+            createFile(projectDir.resolve("srcdir/file${n}.txt")) << ('content ' * n * 100)
+        }
+        createDirectory(projectDir.resolve('build/distributions'))
+        def task = project.tasks.getByName('serverPlugin') as ServerPlugin
+        task.incremental.set(true)
+        task.copy()
+
+        projectDir.resolve('srcdir/file5.txt').toFile().text = 'changed content'
+        createFile(projectDir.resolve('srcdir/file11.txt')) << 'new content'
+        projectDir.resolve('srcdir/file1.txt').toFile().delete()
+        task.copy()
+
+        Map<String, String> contents = archiveContents(projectDir.resolve('build/distributions/test.zip'))
+        assertThat(contents, hasEntry('files/file5.txt', 'changed content'))
+        assertThat(contents, hasEntry('files/file11.txt', 'new content'))
+        assertThat(contents, hasEntry('files/file10.txt', 'content ' * 1000))
+        assertThat(contents, not(hasKey('files/file1.txt')))
+    }
+
+    @Test
+    void 'server plugin archive updated incrementally contains files changed without changing size or modification time'() {
+        project.teamcity {
+            server {
+                files {
+                    into('files') {
+                        from('srcdir')
+                    }
+                }
+            }
+        }
+        createDirectory(projectDir.resolve('srcdir'))
+        def file = createFile(projectDir.resolve('srcdir/file.txt'))
+        file << 'version 1.0'
+        createDirectory(projectDir.resolve('build/distributions'))
+        def task = project.tasks.getByName('serverPlugin') as ServerPlugin
+        task.incremental.set(true)
+        task.copy()
+
+        long lastModified = file.lastModified()
+        file.text = 'version 1.1'
+        file.setLastModified(lastModified)
+        task.copy()
+
+        Map<String, String> contents = archiveContents(projectDir.resolve('build/distributions/test.zip'))
+        assertThat(contents, hasEntry('files/file.txt', 'version 1.1'))
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = [false, true])
+    void 'server plugin archive is replaced instead of rewritten'(boolean parallelCompression) {
+        project.teamcity {
+            server {
+                files {
+                    into('files') {
+                        from('srcdir')
+                    }
+                }
+            }
+        }
+        createDirectory(projectDir.resolve('srcdir'))
+        def file = createFile(projectDir.resolve('srcdir/file.txt'))
+        file << 'original content'
+        createDirectory(projectDir.resolve('build/distributions'))
+        def task = project.tasks.getByName('serverPlugin') as ServerPlugin
+        task.parallelCompression.set(parallelCompression)
+        task.copy()
+        Path archive = projectDir.resolve('build/distributions/test.zip')
+        Path link = projectDir.resolve('deployed.zip')
+        try {
+            Files.createLink(link, archive)
+        }
+        catch (UnsupportedOperationException | IOException ignore) {
+            return
+        }
+
+        file.text = 'modified content'
+        task.copy()
+
+        assertThat(archiveContents(archive), hasEntry('files/file.txt', 'modified content'))
+        assertThat(archiveContents(link), hasEntry('files/file.txt', 'original content'))
+    }
+
+    private static Map<String, String> archiveContents(Path path) {
+        new ZipFile(path.toFile()).withCloseable { zipFile ->
+            zipFile.entries().toList().collectEntries { entry ->
+                [(entry.name): zipFile.getInputStream(entry).text]
+            }
+        }
+    }
+
     @Test
     void 'apply configures archive name using defaults'() {
         project.version = '1.2.3'
@@ -476,7 +765,36 @@ class ServerConfigurationTest extends ConfigurationTestCase {
 
         ServerPlugin serverPlugin = project.tasks.getByName('alternativeServerPlugin') as ServerPlugin
         assertThat(serverPlugin, hasAction(PluginDescriptorValidationAction))
-        assertThat(serverPlugin, hasAction(PluginDescriptorContentsValidationAction))
+        def validationAction = serverPlugin.taskActions
+            .findAll { it.hasProperty('action') }
+            .collect { it.action }
+            .find { it instanceof PluginDescriptorValidationAction } as PluginDescriptorValidationAction
+        assertThat(validationAction.checks, hasItem(isA(PluginDescriptorContentsValidationAction)))
+        assertThat(serverPlugin, hasAction(SharedLibrariesReportAction))
+    }
+
+    @Test
+    void 'finds libraries packaged in both the server and agent plugins'() {
+        File common = createFile(projectDir.resolve('common.jar'))
+        common.bytes = 'common library' as byte[]
+        File server = createFile(projectDir.resolve('server.jar'))
+        server.bytes = 'server library' as byte[]
+        File agentPlugin = projectDir.resolve('agent.zip').toFile()
+        new ZipOutputStream(new FileOutputStream(agentPlugin)).withCloseable { out ->
+            ['lib/common.jar': 'common library', 'lib/agent.jar': 'agent library!', 'common.jar': 'common library'].each { name, content ->
+                out.putNextEntry(new ZipEntry(name))
+                out.write(content as byte[])
+                out.closeEntry()
+            }
+        }
+
+        def shared = SharedLibrariesReportAction.findSharedLibraries([common, server], [agentPlugin])
+
+        assertThat(shared.size(), equalTo(1))
+        assertThat(shared[0].name, equalTo('common.jar'))
+        assertThat(shared[0].agentArchive, equalTo('agent.zip'))
+        assertThat(shared[0].agentPath, equalTo('lib/common.jar'))
+        assertThat(shared[0].size, equalTo(14L))
     }
 
     @Nested
@@ -19,12 +19,17 @@ import org.gradle.api.Project
 import org.gradle.testfixtures.ProjectBuilder
 import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.condition.EnabledForJreRange
+import org.junit.jupiter.api.condition.JRE
 import org.junit.jupiter.api.io.TempDir
 
 import javax.xml.XMLConstants
 
 import static XPathMatcher.hasXPath
+import static com.github.rodm.teamcity.TestSupport.withoutWhitespaceLines
 import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.containsString
+import static org.hamcrest.Matchers.endsWith
 import static org.hamcrest.Matchers.equalTo
 import static org.hamcrest.Matchers.not
 
@@ -467,4 +472,92 @@ class ServerDescriptorGeneratorTest {
 
         assertThat(writer.toString(), not(hasXPath('//requirements')))
     }
+
+    @Test
+    void 'writes indented descriptor with escaped values'() {
+        project.teamcity {
+            version = '2020.1'
+            server {
+                descriptor {
+                    name = 'plugin & <name>'
+                    displayName = 'display "name"'
+                    version = '1.0'
+                    description = ''
+                    vendorName = 'vendor name'
+                    vendorUrl = 'http://example.com?a=1&b=2'
+                    useSeparateClassloader = true
+                    parameters {
+                        parameter 'param', '1 < 2'
+                    }
+                    dependencies {
+                        plugin 'plugin1'
+                    }
+                }
+            }
+        }
+        ServerPluginDescriptorGenerator generator = createGenerator()
+
+        generator.writeTo(writer)
+
+        String expected = """<?xml version="1.0" encoding="UTF-8"?><teamcity-plugin xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance" xsi:noNamespaceSchemaLocation="urn:schemas-jetbrains-com:teamcity-plugin-v1-xml">
+  <info>
+    <name>plugin &amp; &lt;name&gt;</name>
+    <display-name>display "name"</display-name>
+    <version>1.0</version>
+    <description/>
+    <vendor>
+      <name>vendor name</name>
+      <url>http://example.com?a=1&amp;b=2</url>
+    </vendor>
+  </info>
+  <deployment use-separate-classloader="true"/>
+  <parameters>
+    <parameter name="param">1 &lt; 2</parameter>
+  </parameters>
+  <dependencies>
+    <plugin name="plugin1"/>
+  </dependencies>
+</teamcity-plugin>
+"""
+        assertThat(withoutWhitespaceLines(writer.toString()), equalTo(expected))
+    }
+
+    @Test
+    void 'writes multi-line parameter values and names'() {
+        project.teamcity {
+            server {
+                descriptor {
+                    parameters {
+                        parameter 'multi\nline\tname', 'line one\nline two\r\n\tindented'
+                    }
+                }
+            }
+        }
+        ServerPluginDescriptorGenerator generator = createGenerator()
+
+        generator.writeTo(writer)
+
+        String descriptor = writer.toString()
+        assertThat(descriptor, containsString('<parameter name="multi&#10;line&#9;name">line one\nline two\n\tindented</parameter>'))
+        assertThat(descriptor, hasXPath('//parameters/parameter/@name', equalTo('multi\nline\tname')))
+        assertThat(descriptor, hasXPath('//parameters/parameter', equalTo('line one\nline two\n\tindented')))
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_9)
+    void 'writes whitespace lines matching the previous generator on Java 9 and later'() {
+        project.teamcity {
+            server {
+                descriptor {
+                    name = 'test-plugin'
+                }
+            }
+        }
+        ServerPluginDescriptorGenerator generator = createGenerator()
+
+        generator.writeTo(writer)
+
+        assertThat(writer.toString(), containsString('>\n    \n  <info>\n        \n    <name>test-plugin</name>'))
+        assertThat(writer.toString(), endsWith('>\n  \n</teamcity-plugin>\n'))
+    }
 }
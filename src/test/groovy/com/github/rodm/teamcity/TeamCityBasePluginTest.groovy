@@ -127,6 +127,18 @@ class TeamCityBasePluginTest {
         assertThat(extension.validateBeanDefinition, equalTo(IGNORE))
     }
 
+    @Test
+    void 'default streaming option for bean definition validation'() {
+        def extension = project.extensions.getByName('teamcity') as TeamCityPluginExtension
+        assertThat(extension.streamBeanDefinitionValidation, is(false))
+    }
+
+    @Test
+    void 'default bean class analysis option for bean definition validation'() {
+        def extension = project.extensions.getByName('teamcity') as TeamCityPluginExtension
+        assertThat(extension.analyzeBeanClasses, is(false))
+    }
+
     @Nested
     class SubProjects {
 
@@ -169,6 +181,8 @@ class TeamCityBasePluginTest {
                 defaultRepositories = false
                 allowSnapshotVersions = true
                 validateBeanDefinition = IGNORE
+                streamBeanDefinitionValidation = true
+                analyzeBeanClasses = true
             }
 
             subproject.apply plugin: 'io.github.rodm.teamcity-base'
@@ -177,6 +191,8 @@ class TeamCityBasePluginTest {
             assertThat(extension.defaultRepositories, is(false))
             assertThat(extension.allowSnapshotVersions, is(true))
             assertThat(extension.validateBeanDefinition, is(IGNORE))
+            assertThat(extension.streamBeanDefinitionValidation, is(true))
+            assertThat(extension.analyzeBeanClasses, is(true))
         }
 
         @Test
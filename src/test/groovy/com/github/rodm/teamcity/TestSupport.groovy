@@ -48,6 +48,13 @@ class TestSupport {
         path.replace('\\', '/')
     }
 
+    /**
+     * Removes the whitespace-only lines written to plugin descriptors when running on Java 9 and later.
+     */
+    static String withoutWhitespaceLines(String xml) {
+        xml.replaceAll(/\n +(?=\n)/, '')
+    }
+
     static List<String> archiveEntries(Path path) {
         try (ZipFile archiveFile = new ZipFile(path.toFile())) {
             return archiveFile.entries().collect { it.name }
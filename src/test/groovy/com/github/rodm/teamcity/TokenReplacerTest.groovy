@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity
+
+import com.github.rodm.teamcity.internal.TokenReplacer
+import org.junit.jupiter.api.Test
+
+import static org.hamcrest.CoreMatchers.equalTo
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.contains
+import static org.hamcrest.Matchers.empty
+
+class TokenReplacerTest {
+
+    @Test
+    void 'replaces tokens with values'() {
+        TokenReplacer replacer = new TokenReplacer([VERSION: '1.2.3', VENDOR: 'rodm'])
+
+        String result = replacer.replace('<version>@VERSION@</version><name>@VENDOR@</name>')
+
+        assertThat(result, equalTo('<version>1.2.3</version><name>rodm</name>'))
+        assertThat(replacer.unusedTokens, empty())
+        assertThat(replacer.unresolvedTokens, empty())
+    }
+
+    @Test
+    void 'leaves unknown tokens unchanged and reports them'() {
+        TokenReplacer replacer = new TokenReplacer([VERSION: '1.2.3'])
+
+        String result = replacer.replace('@BUILD@ @VERSION@')
+
+        assertThat(result, equalTo('@BUILD@ 1.2.3'))
+        assertThat(replacer.unresolvedTokens, contains('BUILD'))
+    }
+
+    @Test
+    void 'closing delimiter of an unknown token can start the next token'() {
+        TokenReplacer replacer = new TokenReplacer([VERSION: '1.2.3'])
+
+        String result = replacer.replace('a@b@VERSION@')
+
+        assertThat(result, equalTo('a@b1.2.3'))
+    }
+
+    @Test
+    void 'reports tokens not found in the input'() {
+        TokenReplacer replacer = new TokenReplacer([VERSION: '1.2.3', VENDOR: 'rodm', BUILD: '1'])
+
+        replacer.replace('@VERSION@')
+
+        assertThat(replacer.unusedTokens, contains('BUILD', 'VENDOR'))
+    }
+
+    @Test
+    void 'does not report text between delimiters that is not a token name'() {
+        TokenReplacer replacer = new TokenReplacer([VERSION: '1.2.3'])
+
+        String result = replacer.replace('mail user@example.com or admin@example.org\n@VERSION')
+
+        assertThat(result, equalTo('mail user@example.com or admin@example.org\n@VERSION'))
+        assertThat(replacer.unresolvedTokens, empty())
+    }
+
+    @Test
+    void 'tokens do not span lines'() {
+        TokenReplacer replacer = new TokenReplacer([VERSION: '1.2.3'])
+
+        String result = replacer.replace('@\nVERSION@VERSION@')
+
+        assertThat(result, equalTo('@\nVERSION1.2.3'))
+    }
+
+    @Test
+    void 'replaces tokens across buffer boundaries'() {
+        TokenReplacer replacer = new TokenReplacer([VERSION: '1.2.3'])
+        String padding = 'x' * 8190
+        StringWriter writer = new StringWriter()
+
+        replacer.replace(new StringReader(padding + '@VERSION@@VERSION'), writer)
+
+        assertThat(writer.toString(), equalTo(padding + '1.2.3@VERSION'))
+    }
+
+    @Test
+    void 'values are not replaced again'() {
+        TokenReplacer replacer = new TokenReplacer([A: '@B@', B: 'b'])
+
+        String result = replacer.replace('@A@')
+
+        assertThat(result, equalTo('@B@'))
+        assertThat(replacer.unusedTokens, contains('B'))
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.github.rodm.teamcity
 
+import com.github.rodm.teamcity.internal.ClassIndex
 import com.github.rodm.teamcity.internal.PluginDefinition
 import com.github.rodm.teamcity.internal.PluginDefinitionValidationAction
 import org.gradle.api.Action
@@ -42,6 +43,12 @@ class ValidateDefinitionActionOfflineTest {
                 <bean id="examplePlugin" class="example.Plugin"/>
             </beans>
         """
+    public static final String UNKNOWN_DTD_DEFINITION_FILE = """<?xml version="1.0" encoding="UTF-8"?>
+        <!DOCTYPE beans SYSTEM "http://example.com/dtd/unknown-beans.dtd">
+            <beans>
+                <bean id="examplePlugin" class="example.Plugin"/>
+            </beans>
+        """
     private static final String NO_BEANS_PARSING_MESSAGE = 'Failed to parse plugin definition file '
 
     private final ResettableOutputEventListener outputEventListener = new ResettableOutputEventListener()
@@ -51,15 +58,16 @@ class ValidateDefinitionActionOfflineTest {
 
     private Project project
     private Task stubTask
+    private File definitionFile
     private List<PluginDefinition> definitions = []
-    private Set<String> classes = new HashSet<>()
+    private ClassIndex classes = new ClassIndex()
 
     @BeforeEach
     void setup(@TempDir File projectDir) {
         project = ProjectBuilder.builder().withProjectDir(projectDir).build()
         stubTask = project.tasks.create('stub')
 
-        File definitionFile = project.file('build-server-plugin.xml')
+        definitionFile = project.file('build-server-plugin.xml')
         definitionFile << BEAN_DEFINITION_FILE
         definitions.add(new PluginDefinition(definitionFile))
         outputEventListener.reset()
@@ -82,8 +90,18 @@ class ValidateDefinitionActionOfflineTest {
         new PluginDefinitionValidationAction(WARN, definitions, classes)
     }
 
+    @Test
+    void 'no warning message when the bean definition DTD is in the local catalog'() {
+        Action<Task> validationAction = createValidationAction()
+
+        validationAction.execute(stubTask)
+
+        assertThat(outputEventListener.toString(), not(containsString(NO_BEANS_PARSING_MESSAGE)))
+    }
+
     @Test
     void 'output warning message on failed bean definition parsing failure'() {
+        definitionFile.text = UNKNOWN_DTD_DEFINITION_FILE
         Action<Task> validationAction = createValidationAction()
 
         validationAction.execute(stubTask)
@@ -16,26 +16,36 @@
 
 package com.github.rodm.teamcity
 
-import com.github.rodm.teamcity.internal.ClassCollectorAction
+import com.github.rodm.teamcity.internal.BeanClassAnalyzer
+import com.github.rodm.teamcity.internal.ClassFile
+import com.github.rodm.teamcity.internal.ClassIndex
 import com.github.rodm.teamcity.internal.PluginDefinition
-import com.github.rodm.teamcity.internal.PluginDefinitionCollectorAction
 import com.github.rodm.teamcity.internal.PluginDefinitionValidationAction
+import com.github.rodm.teamcity.internal.StreamingPluginDefinition
+import com.github.rodm.teamcity.internal.ValidationReportListener
+import com.github.rodm.teamcity.internal.XmlReaderCache
+import com.github.rodm.teamcity.tasks.ValidatePluginDefinition
 import org.gradle.api.Action
 import org.gradle.api.GradleException
 import org.gradle.api.Project
 import org.gradle.api.Task
-import org.gradle.api.file.FileCopyDetails
-import org.gradle.api.file.RelativePath
 import org.gradle.api.plugins.JavaPlugin
-import org.gradle.api.tasks.AbstractCopyTask
 import org.gradle.api.tasks.bundling.Jar
 import org.gradle.testfixtures.ProjectBuilder
+import org.gradle.tooling.events.task.TaskFinishEvent
+import org.gradle.tooling.events.task.TaskOperationDescriptor
+import org.gradle.tooling.events.task.TaskSuccessResult
 import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.extension.RegisterExtension
 import org.junit.jupiter.api.io.TempDir
 
-import static com.github.rodm.teamcity.GradleMatchers.hasAction
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+import static com.github.rodm.teamcity.GradleMatchers.dependsOn
+import static com.github.rodm.teamcity.GradleMatchers.finalizedBy
+import static com.github.rodm.teamcity.GradleMatchers.hasTask
 import static com.github.rodm.teamcity.ValidationMode.FAIL
 import static com.github.rodm.teamcity.ValidationMode.IGNORE
 import static com.github.rodm.teamcity.ValidationMode.WARN
@@ -43,15 +53,13 @@ import static com.github.rodm.teamcity.internal.PluginDefinitionValidationAction
 import static com.github.rodm.teamcity.internal.PluginDefinitionValidationAction.NO_BEAN_CLASS_ATTRIBUTE_WARNING_MESSAGE
 import static com.github.rodm.teamcity.internal.PluginDefinitionValidationAction.NO_BEAN_CLASS_WARNING_MESSAGE
 import static com.github.rodm.teamcity.internal.PluginDefinitionValidationAction.NO_DEFINITION_WARNING_MESSAGE
+import static com.github.rodm.teamcity.internal.ValidationReportListener.VALIDATION_REPORT_LISTENER_SERVICE_NAME
 import static org.hamcrest.CoreMatchers.containsString
 import static org.hamcrest.CoreMatchers.equalTo
-import static org.hamcrest.CoreMatchers.hasItem
+import static org.hamcrest.CoreMatchers.is
 import static org.hamcrest.CoreMatchers.not
 import static org.hamcrest.MatcherAssert.assertThat
-import static org.hamcrest.Matchers.hasKey
 import static org.junit.jupiter.api.Assertions.assertThrows
-import static org.mockito.Mockito.mock
-import static org.mockito.Mockito.when
 
 @SuppressWarnings(['ConfigurationAvoidance', 'GroovyAccessibility'])
 class ValidateDefinitionActionTest {
@@ -89,7 +97,7 @@ class ValidateDefinitionActionTest {
     private Project project
     private Task stubTask
     private List<PluginDefinition> definitions = []
-    private Set<String> classes = new HashSet<>()
+    private ClassIndex classes = new ClassIndex()
 
     @BeforeEach
     void setup(@TempDir File projectDir) {
@@ -257,117 +265,359 @@ class ValidateDefinitionActionTest {
     }
 
     @Test
-    void 'server plugin apply configures filesMatching actions on jar spec'() {
-        project.pluginManager.apply(JavaPlugin)
-        Jar jar = replaceJar(project)
+    void 'validation action records warnings'() {
+        File definitionFile = project.file('build-server-plugin.xml')
+        definitionFile << BEAN_DEFINITION_FILE
+        definitions.add(new PluginDefinition(definitionFile))
+        PluginDefinitionValidationAction pluginValidationAction = createValidationAction()
 
-        project.pluginManager.apply(TeamCityServerPlugin)
-        project.evaluate()
+        pluginValidationAction.execute(stubTask)
 
-        def descriptorPattern = 'META-INF/build-server-plugin*.xml'
-        assertThat(jar.filesMatching, hasKey(descriptorPattern))
-        assertThat(jar.filesMatching.get(descriptorPattern).getClass().name, equalTo(PluginDefinitionCollectorAction.name))
-        def classPattern = '**/*.class'
-        assertThat(jar.filesMatching, hasKey(classPattern))
-        assertThat(jar.filesMatching.get(classPattern).getClass().name, equalTo(ClassCollectorAction.name))
+        String expectedMessage = String.format(NO_BEAN_CLASS_WARNING, 'build-server-plugin.xml', 'example.Plugin')
+        assertThat(pluginValidationAction.warnings.size(), equalTo(1))
+        assertThat(pluginValidationAction.warnings.get(0), containsString(expectedMessage))
     }
 
     @Test
-    void 'server plugin apply configures doLast action on jar task'() {
+    void 'server plugin apply registers validate plugin definition task'() {
         project.pluginManager.apply(JavaPlugin)
         project.pluginManager.apply(TeamCityServerPlugin)
         project.evaluate()
 
+        assertThat(project, hasTask('validatePluginDefinition'))
         Jar jar = project.tasks.getByName('jar') as Jar
-        assertThat(jar, hasAction(PluginDefinitionValidationAction))
+        assertThat(jar, finalizedBy('validatePluginDefinition'))
+        Task validate = project.tasks.getByName('validatePluginDefinition')
+        assertThat(validate, dependsOn('jar'))
     }
 
     @Test
-    void 'applying java plugin after server plugin configures jar task'() {
+    void 'applying java plugin after server plugin registers validate plugin definition task'() {
         project.pluginManager.apply(TeamCityServerPlugin)
         project.pluginManager.apply(JavaPlugin)
         project.evaluate()
 
         Jar jar = project.tasks.getByName('jar') as Jar
-        assertThat(jar, hasAction(PluginDefinitionValidationAction))
+        assertThat(jar, finalizedBy('validatePluginDefinition'))
     }
 
     @Test
-    void 'agent plugin apply configures filesMatching actions on jar spec'() {
+    void 'agent plugin apply registers validate plugin definition task'() {
         project.pluginManager.apply(JavaPlugin)
-        SpyJar mockJarTask = replaceJar(project)
-
         project.pluginManager.apply(TeamCityAgentPlugin)
         project.evaluate()
 
-        def descriptorPattern = 'META-INF/build-agent-plugin*.xml'
-        assertThat(mockJarTask.filesMatching, hasKey(descriptorPattern))
-        assertThat(mockJarTask.filesMatching.get(descriptorPattern).getClass().name, equalTo(PluginDefinitionCollectorAction.name))
-        def classPattern = '**/*.class'
-        assertThat(mockJarTask.filesMatching, hasKey(classPattern))
-        assertThat(mockJarTask.filesMatching.get(classPattern).getClass().name, equalTo(ClassCollectorAction.name))
+        assertThat(project, hasTask('validatePluginDefinition'))
+        Jar jar = project.tasks.getByName('jar') as Jar
+        assertThat(jar, finalizedBy('validatePluginDefinition'))
     }
 
     @Test
-    void 'agent plugin apply configures doLast action on jar task'() {
-        project.pluginManager.apply(JavaPlugin)
+    void 'applying java plugin after agent plugin registers validate plugin definition task'() {
         project.pluginManager.apply(TeamCityAgentPlugin)
+        project.pluginManager.apply(JavaPlugin)
         project.evaluate()
 
         Jar jar = project.tasks.getByName('jar') as Jar
-        assertThat(jar, hasAction(PluginDefinitionValidationAction))
+        assertThat(jar, finalizedBy('validatePluginDefinition'))
     }
 
     @Test
-    void 'applying java plugin after agent plugin configures jar task'() {
-        project.pluginManager.apply(TeamCityAgentPlugin)
+    void 'validate plugin definition task uses extension properties'() {
         project.pluginManager.apply(JavaPlugin)
+        project.pluginManager.apply(TeamCityServerPlugin)
+        project.teamcity {
+            validateBeanDefinition = FAIL
+            streamBeanDefinitionValidation = true
+        }
         project.evaluate()
 
-        Jar jar = project.tasks.getByName('jar') as Jar
-        assertThat(jar, hasAction(PluginDefinitionValidationAction))
+        ValidatePluginDefinition validate = project.tasks.getByName('validatePluginDefinition') as ValidatePluginDefinition
+        assertThat(validate.mode.get(), equalTo(FAIL))
+        assertThat(validate.streaming.get(), is(true))
+        assertThat(validate.report.get().asFile.name, equalTo('plugin-definition-validation.txt'))
     }
 
     @Test
-    void 'PluginDefinitionCollector collects plugin definition files'() {
-        List<PluginDefinition> definitions = new ArrayList<PluginDefinition>()
-        Action<FileCopyDetails> collectorAction = new PluginDefinitionCollectorAction(definitions)
+    void 'validate plugin definition task writes warnings to report'() {
+        File jarFile = createJar('META-INF/build-server-plugin.xml': BEAN_DEFINITION_FILE, 'example/Other.class': '')
         File definitionFile = project.file('build-server-plugin.xml')
-        FileCopyDetails stubDetails = mock(FileCopyDetails)
-        when(stubDetails.getFile()).thenReturn(definitionFile)
+        definitionFile << BEAN_DEFINITION_FILE
+        ValidatePluginDefinition validate = createValidateTask(jarFile, definitionFile)
 
-        collectorAction.execute(stubDetails)
+        validate.validate()
 
-        assertThat(definitions.size(), equalTo(1))
-        assertThat(definitions.get(0).name, equalTo('build-server-plugin.xml'))
+        String expectedMessage = String.format(NO_BEAN_CLASS_WARNING, 'build-server-plugin.xml', 'example.Plugin')
+        assertThat(validate.report.get().asFile.text, containsString(expectedMessage))
     }
 
     @Test
-    void "ClassCollector collects classes"() {
-        Set<String> classList = new HashSet<String>()
-        Action<FileCopyDetails> classManifestCollector = new ClassCollectorAction(classList)
-        FileCopyDetails stubDetails = mock(FileCopyDetails)
-        when(stubDetails.getRelativePath()).thenReturn(new RelativePath(true, 'com', 'example', 'Plugin.class'))
+    void 'validate plugin definition task finds classes in jar'() {
+        File jarFile = createJar('META-INF/build-server-plugin.xml': BEAN_DEFINITION_FILE, 'example/Plugin.class': '')
+        File definitionFile = project.file('build-server-plugin.xml')
+        definitionFile << BEAN_DEFINITION_FILE
+        ValidatePluginDefinition validate = createValidateTask(jarFile, definitionFile)
+        outputEventListener.reset()
 
-        classManifestCollector.execute(stubDetails)
+        validate.validate()
 
-        assertThat(classList.size(), equalTo(1))
-        assertThat(classList, hasItem('com/example/Plugin.class'))
+        assertThat(validate.report.get().asFile.text, equalTo(''))
+        String expectedMessage = String.format(NO_BEAN_CLASS_WARNING, 'build-server-plugin.xml', 'example.Plugin')
+        assertThat(outputEventListener.toString(), not(containsString(expectedMessage)))
     }
 
-    private static SpyJar replaceJar(Project project) {
-        SpyJar task = project.tasks.replace(JavaPlugin.JAR_TASK_NAME, SpyJar.class)
-        return task
+    @Test
+    void 'validate plugin definition task result can be loaded from the build cache'() {
+        ValidatePluginDefinition validate = createValidateTask(createJar('example/Plugin.class': ''), null)
+
+        assertThat(validate.outputs.doNotCacheIfSpecs.any { it.isSatisfiedBy(validate) }, is(false))
+        assertThat(validate.outputs.upToDateSpec.isSatisfiedBy(validate), is(true))
+    }
+
+    @Test
+    void 'warnings in report are logged again when validate plugin definition task is up-to-date'() {
+        ValidationReportListener listener = createReportListener('warning one', 'warning two')
+
+        listener.onFinish(taskFinishEvent(':validatePluginDefinition', true, false))
+
+        assertThat(outputEventListener.toString(), containsString('warning one'))
+        assertThat(outputEventListener.toString(), containsString('warning two'))
+    }
+
+    @Test
+    void 'warnings in report are logged again when validate plugin definition task is loaded from the build cache'() {
+        ValidationReportListener listener = createReportListener('warning one')
+
+        listener.onFinish(taskFinishEvent(':validatePluginDefinition', false, true))
+
+        assertThat(outputEventListener.toString(), containsString('warning one'))
+    }
+
+    @Test
+    void 'warnings in report are not logged again when validate plugin definition task runs'() {
+        ValidationReportListener listener = createReportListener('warning one')
+
+        listener.onFinish(taskFinishEvent(':validatePluginDefinition', false, false))
+        listener.onFinish(taskFinishEvent(':jar', true, false))
+
+        assertThat(outputEventListener.toString(), not(containsString('warning one')))
+    }
+
+    @Test
+    void 'validate plugin definition tasks share the readers of the xml reader cache'() {
+        File jarFile = createJar('META-INF/build-server-plugin.xml': BEAN_DEFINITION_FILE, 'example/Plugin.class': '')
+        File definitionFile = project.file('build-server-plugin.xml')
+        definitionFile << BEAN_DEFINITION_FILE
+        def readerCache = XmlReaderCache.register(project.gradle)
+        ValidatePluginDefinition validate1 = createValidateTask(jarFile, definitionFile, 'validate1')
+        validate1.xmlReaderCache.set(readerCache)
+        ValidatePluginDefinition validate2 = createValidateTask(jarFile, definitionFile, 'validate2')
+        validate2.xmlReaderCache.set(readerCache)
+
+        validate1.validate()
+        validate2.validate()
+
+        assertThat(readerCache.get().getReaders(false).readers.size(), is(1))
+    }
+
+    @Test
+    void 'classes fingerprint is unchanged when class contents change'() {
+        File jarFile = createJar('example/Plugin.class': 'one')
+        ValidatePluginDefinition validate1 = createValidateTask(jarFile, null, 'validate1')
+        String fingerprint = validate1.classesFingerprint.get()
+
+        jarFile.delete()
+        createJar('example/Plugin.class': 'two')
+        ValidatePluginDefinition validate2 = createValidateTask(jarFile, null, 'validate2')
+
+        assertThat(validate2.classesFingerprint.get(), equalTo(fingerprint))
+    }
+
+    @Test
+    void 'StreamingPluginDefinition reads bean definitions'() {
+        File definitionFile = project.file('build-server-plugin.xml')
+        definitionFile << BEAN_DEFINITION_FILE
+
+        PluginDefinition definition = StreamingPluginDefinition.read(definitionFile)
+
+        assertThat(definition.name, equalTo('build-server-plugin.xml'))
+        assertThat(definition.getBeans(false).size(), equalTo(1))
+        assertThat(definition.getBeans(false).get(0).className, equalTo('example.Plugin'))
+    }
+
+    @Test
+    void 'log warning message for missing class with streamed definition'() {
+        File definitionFile = project.file('build-server-plugin.xml')
+        definitionFile << BEAN_DEFINITION_FILE
+        definitions.add(StreamingPluginDefinition.read(definitionFile))
+        Action<Task> pluginValidationAction = createValidationAction()
+        outputEventListener.reset()
+
+        pluginValidationAction.execute(stubTask)
+
+        String expectedMessage = String.format(NO_BEAN_CLASS_WARNING, 'build-server-plugin.xml', 'example.Plugin')
+        assertThat(outputEventListener.toString(), containsString(expectedMessage))
+    }
+
+    @Test
+    void 'no warning message with class and streamed definition'() {
+        File definitionFile = project.file('build-server-plugin.xml')
+        definitionFile << BEAN_DEFINITION_FILE
+        definitions.add(StreamingPluginDefinition.read(definitionFile))
+        classes.add('example/Plugin.class')
+        Action<Task> pluginValidationAction = createValidationAction()
+        outputEventListener.reset()
+
+        pluginValidationAction.execute(stubTask)
+
+        String expectedMessage = String.format(NO_BEAN_CLASS_WARNING, 'build-server-plugin.xml', 'example.Plugin')
+        assertThat(outputEventListener.toString(), not(containsString(expectedMessage)))
+    }
+
+    @Test
+    void 'log warning messages for empty and missing class attribute with streamed definitions'() {
+        File emptyDefinitionFile = project.file('build-server-plugin1.xml')
+        emptyDefinitionFile << EMPTY_BEAN_DEFINITION_FILE
+        definitions.add(StreamingPluginDefinition.read(emptyDefinitionFile))
+        File definitionFile = project.file('build-server-plugin2.xml')
+        definitionFile << MISSING_CLASS_DEFINITION_FILE
+        definitions.add(StreamingPluginDefinition.read(definitionFile))
+        Action<Task> pluginValidationAction = createValidationAction()
+        outputEventListener.reset()
+
+        pluginValidationAction.execute(stubTask)
+
+        String noBeanClassesMessage = String.format(NO_BEAN_CLASSES_WARNING, 'build-server-plugin1.xml')
+        assertThat(outputEventListener.toString(), containsString(noBeanClassesMessage))
+        String noClassAttributeMessage = String.format(NO_BEAN_CLASS_ATTRIBUTE_WARNING, 'build-server-plugin2.xml')
+        assertThat(outputEventListener.toString(), containsString(noClassAttributeMessage))
+    }
+
+    @Test
+    void 'warnings for concurrently parsed definitions are reported in definition order'() {
+        List<String> expectedWarnings = []
+        (1..20).each { i ->
+            File definitionFile = project.file("build-server-plugin-${i}.xml")
+            definitionFile << BEAN_DEFINITION_FILE.replace('example.Plugin', "example.Plugin${i}")
+            definitions.add(new StreamingPluginDefinition(definitionFile))
+            expectedWarnings << String.format(NO_BEAN_CLASS_WARNING_MESSAGE, ':stub', "build-server-plugin-${i}.xml", "example.Plugin${i}")
+        }
+        PluginDefinitionValidationAction pluginValidationAction = createValidationAction()
+
+        pluginValidationAction.execute(stubTask)
+
+        assertThat(pluginValidationAction.warnings, equalTo(expectedWarnings))
+    }
+
+    @Test
+    void 'log warning messages for bean class types missing from the jar and classpath'() {
+        String beanClass = PluginDefinitionValidationAction.name
+        File jarFile = createJar((classPath(beanClass)): classBytes(beanClass))
+        ClassIndex jarClasses = new ClassIndex()
+        jarClasses.add(classPath(beanClass))
+        File definitionFile = project.file('build-server-plugin.xml')
+        definitionFile << BEAN_DEFINITION_FILE.replace('example.Plugin', beanClass)
+        definitions.add(new PluginDefinition(definitionFile))
+        def analyzer = new BeanClassAnalyzer(jarFile, jarClasses, [])
+        def pluginValidationAction = new PluginDefinitionValidationAction(WARN, definitions, jarClasses, analyzer)
+
+        analyzer.withCloseable { pluginValidationAction.execute(stubTask) }
+
+        String output = outputEventListener.toString()
+        assertThat(output, containsString("superclass or interface 'org.gradle.api.Action' was not found"))
+        assertThat(output, containsString("constructor parameter type 'com.github.rodm.teamcity.ValidationMode' was not found"))
+        assertThat(output, containsString("constructor parameter type 'com.github.rodm.teamcity.internal.ClassIndex' was not found"))
+        assertThat(output, not(containsString("'java.util.List' was not found")))
     }
 
-    static class SpyJar extends Jar {
+    @Test
+    void 'no warning messages for bean class types available from the classpath'() {
+        String beanClass = PluginDefinitionValidationAction.name
+        File jarFile = createJar((classPath(beanClass)): classBytes(beanClass))
+        ClassIndex jarClasses = new ClassIndex()
+        jarClasses.add(classPath(beanClass))
+        File classesDir = project.file('build/classes')
+        ['org.gradle.api.Action', ValidationMode.name, ClassIndex.name, BeanClassAnalyzer.name].each { name ->
+            File classFile = new File(classesDir, classPath(name))
+            classFile.parentFile.mkdirs()
+            classFile.bytes = classBytes(name)
+        }
+        File definitionFile = project.file('build-server-plugin.xml')
+        definitionFile << BEAN_DEFINITION_FILE.replace('example.Plugin', beanClass)
+        definitions.add(new PluginDefinition(definitionFile))
+        def analyzer = new BeanClassAnalyzer(jarFile, jarClasses, [classesDir])
+        def pluginValidationAction = new PluginDefinitionValidationAction(WARN, definitions, jarClasses, analyzer)
+        outputEventListener.reset()
 
-        Map<String, Action> filesMatching = new HashMap()
+        analyzer.withCloseable { pluginValidationAction.execute(stubTask) }
+
+        assertThat(pluginValidationAction.warnings, equalTo([]))
+    }
+
+    @Test
+    void 'class file reader returns supertypes and constructor parameter types'() {
+        ClassFile classFile = ClassFile.read(classBytes(PluginDefinitionValidationAction.name))
+
+        assertThat(classFile.name, equalTo('com/github/rodm/teamcity/internal/PluginDefinitionValidationAction'))
+        assertThat(classFile.superName, equalTo('java/lang/Object'))
+        assertThat(classFile.interfaces, equalTo(['org/gradle/api/Action']))
+        assertThat(classFile.constructorParameterTypes as List, equalTo([
+            'com/github/rodm/teamcity/ValidationMode',
+            'java/util/List',
+            'com/github/rodm/teamcity/internal/ClassIndex',
+            'com/github/rodm/teamcity/internal/BeanClassAnalyzer']))
+    }
+
+    private static String classPath(String className) {
+        return className.replace('.', '/') + '.class'
+    }
+
+    private static byte[] classBytes(String className) {
+        ValidateDefinitionActionTest.getResourceAsStream('/' + classPath(className)).withCloseable { it.bytes }
+    }
+
+    private ValidationReportListener createReportListener(String... warnings) {
+        project.pluginManager.apply(JavaPlugin)
+        project.pluginManager.apply(TeamCityServerPlugin)
+        project.evaluate()
+        File report = project.file('build/teamcity/plugin-definition-validation.txt')
+        report.parentFile.mkdirs()
+        report.text = warnings.collect { it + System.lineSeparator() }.join('')
+        outputEventListener.reset()
+        def registration = project.gradle.sharedServices.registrations.getByName(VALIDATION_REPORT_LISTENER_SERVICE_NAME)
+        return registration.service.get() as ValidationReportListener
+    }
+
+    private static TaskFinishEvent taskFinishEvent(String path, boolean upToDate, boolean fromCache) {
+        TaskSuccessResult result = [isUpToDate: { upToDate }, isFromCache: { fromCache }] as TaskSuccessResult
+        TaskOperationDescriptor descriptor = [getTaskPath: { path }] as TaskOperationDescriptor
+        return [getResult: { result }, getDescriptor: { descriptor }] as TaskFinishEvent
+    }
+
+    private ValidatePluginDefinition createValidateTask(File jarFile, File definitionFile, String name = 'validate') {
+        ValidatePluginDefinition task = project.tasks.create(name, ValidatePluginDefinition)
+        task.jar.set(jarFile)
+        if (definitionFile != null) {
+            task.definitions.from(definitionFile)
+        }
+        task.mode.set(WARN)
+        task.streaming.set(false)
+        task.analyzeClasses.set(false)
+        task.report.set(project.file("build/${name}.txt"))
+        task.report.get().asFile.parentFile.mkdirs()
+        return task
+    }
 
-        @Override
-        AbstractCopyTask filesMatching(String pattern, Action<? super FileCopyDetails> action) {
-            filesMatching.put(pattern, action)
-            return super.filesMatching(pattern, action)
+    private File createJar(Map<String, Object> entries) {
+        File jarFile = project.file('build/libs/test.jar')
+        jarFile.parentFile.mkdirs()
+        new ZipOutputStream(new FileOutputStream(jarFile)).withCloseable { zip ->
+            entries.each { name, content ->
+                zip.putNextEntry(new ZipEntry(name))
+                zip.write(content instanceof byte[] ? content as byte[] : content.toString().bytes)
+                zip.closeEntry()
+            }
         }
+        return jarFile
     }
 }
@@ -18,6 +18,7 @@ package com.github.rodm.teamcity
 
 import com.github.rodm.teamcity.internal.AbstractPluginTask
 import com.github.rodm.teamcity.internal.PluginDescriptorContentsValidationAction
+import com.github.rodm.teamcity.internal.XmlReaderCache
 import org.gradle.api.Action
 import org.gradle.api.Project
 import org.gradle.api.Task
@@ -56,8 +57,8 @@ class ValidateDescriptorActionTest {
         stubTask.descriptor.set(descriptorFile)
     }
 
-    static private PluginDescriptorContentsValidationAction validationAction() {
-        new PluginDescriptorContentsValidationAction()
+    private PluginDescriptorContentsValidationAction validationAction() {
+        new PluginDescriptorContentsValidationAction(XmlReaderCache.register(project.gradle))
     }
 
     @Test
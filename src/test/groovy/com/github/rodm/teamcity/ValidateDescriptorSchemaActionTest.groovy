@@ -17,7 +17,12 @@
 package com.github.rodm.teamcity
 
 import com.github.rodm.teamcity.internal.AbstractPluginTask
+import com.github.rodm.teamcity.internal.PluginDescriptorCheck
+import com.github.rodm.teamcity.internal.PluginDescriptorContents
+import com.github.rodm.teamcity.internal.PluginDescriptorContentsValidationAction
 import com.github.rodm.teamcity.internal.PluginDescriptorValidationAction
+import com.github.rodm.teamcity.internal.SchemaCache
+import com.github.rodm.teamcity.internal.XmlReaderCache
 import org.gradle.api.Action
 import org.gradle.api.Project
 import org.gradle.api.Task
@@ -28,8 +33,12 @@ import org.junit.jupiter.api.extension.RegisterExtension
 import org.junit.jupiter.api.io.TempDir
 
 import static org.hamcrest.CoreMatchers.containsString
+import static org.hamcrest.CoreMatchers.equalTo
+import static org.hamcrest.CoreMatchers.is
 import static org.hamcrest.CoreMatchers.not
+import static org.hamcrest.CoreMatchers.sameInstance
 import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.lessThan
 
 @SuppressWarnings('ConfigurationAvoidance')
 class ValidateDescriptorSchemaActionTest {
@@ -69,8 +78,8 @@ class ValidateDescriptorSchemaActionTest {
         stubTask.descriptor.set(descriptorFile)
     }
 
-    private static validationAction(String schema) {
-        new PluginDescriptorValidationAction(schema)
+    private validationAction(String schema) {
+        new PluginDescriptorValidationAction(schema, SchemaCache.register(project.gradle), XmlReaderCache.register(project.gradle))
     }
 
     @Test
@@ -113,6 +122,73 @@ class ValidateDescriptorSchemaActionTest {
         assertThat(outputEventListener.toString(), not(containsString(warningFor('node-responsibilities-aware', 'deployment'))))
     }
 
+    @Test
+    void 'schema cache compiles each schema once'() {
+        SchemaCache schemaCache = SchemaCache.register(project.gradle).get()
+
+        def schema1 = schemaCache.getSchema('2020.1/teamcity-server-plugin-descriptor.xsd')
+        def schema2 = schemaCache.getSchema('2020.1/teamcity-server-plugin-descriptor.xsd')
+        def schema3 = schemaCache.getSchema('2018.2/teamcity-server-plugin-descriptor.xsd')
+
+        assertThat(schema1, is(sameInstance(schema2)))
+        assertThat(schema1, is(not(sameInstance(schema3))))
+    }
+
+    @Test
+    void 'schema cache is shared by validation actions'() {
+        def schema = '2020.1/teamcity-server-plugin-descriptor.xsd'
+        validationAction(schema).execute(stubTask)
+        validationAction(schema).execute(stubTask)
+
+        SchemaCache schemaCache = SchemaCache.register(project.gradle).get()
+        assertThat(schemaCache.schemas.size(), is(1))
+    }
+
+    @Test
+    void 'xml reader cache is shared by validation actions'() {
+        def schema = '2020.1/teamcity-server-plugin-descriptor.xsd'
+        validationAction(schema).execute(stubTask)
+        validationAction(schema).execute(stubTask)
+
+        XmlReaderCache readerCache = XmlReaderCache.register(project.gradle).get()
+        assertThat(readerCache.getReaders(false).readers.size(), is(1))
+        assertThat(readerCache.getReaders(true).readers.size(), is(0))
+    }
+
+    @Test
+    void 'schema and descriptor checks use a single pass'() {
+        descriptorFile.text = '''<?xml version="1.0" encoding="UTF-8"?>
+        <teamcity-plugin>
+            <info>
+                <name>name</name>
+                <display-name>display name</display-name>
+                <description></description>
+                <version>version</version>
+                <vendor>
+                    <name>vendor name</name>
+                </vendor>
+            </info>
+            <deployment allow-runtime-reload='true'/>
+        </teamcity-plugin>
+        '''
+        List<PluginDescriptorContents> passes = []
+        PluginDescriptorCheck recordingCheck = { Task task, PluginDescriptorContents contents -> passes << contents }
+        def schema = 'teamcity-server-plugin-descriptor.xsd'
+        def readerCache = XmlReaderCache.register(project.gradle)
+        def action = new PluginDescriptorValidationAction(schema, SchemaCache.register(project.gradle), readerCache,
+            new PluginDescriptorContentsValidationAction(readerCache), recordingCheck)
+
+        action.execute(stubTask)
+
+        String output = outputEventListener.toString()
+        assertThat(passes.size(), is(1))
+        assertThat(passes[0].getValue(PluginDescriptorContents.NAME), equalTo('name'))
+        assertThat(output, containsString(warningFor('allow-runtime-reload', 'deployment')))
+        assertThat(output, containsString('Plugin descriptor value for description must not be empty.'))
+        assertThat(output, containsString('Plugin descriptor value for vendor url must not be empty.'))
+        assertThat(output.indexOf('Plugin descriptor is invalid'), is(lessThan(output.indexOf('must not be empty'))))
+    }
+
     private static String warningFor(String attribute, String element) {
         return String.format("Attribute '%s' is not allowed to appear in element '%s'", attribute, element)
     }
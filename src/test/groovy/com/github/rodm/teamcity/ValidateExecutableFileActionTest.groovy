@@ -17,10 +17,10 @@ package com.github.rodm.teamcity
 
 import com.github.rodm.teamcity.internal.AbstractPluginTask
 import com.github.rodm.teamcity.internal.PluginExecutableFilesValidationAction
+import com.github.rodm.teamcity.internal.XmlReaderCache
 import org.gradle.api.Action
 import org.gradle.api.Project
 import org.gradle.api.Task
-import org.gradle.api.file.FileCopyDetails
 import org.gradle.testfixtures.ProjectBuilder
 import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Test
@@ -30,8 +30,6 @@ import org.junit.jupiter.api.io.TempDir
 import static org.hamcrest.MatcherAssert.assertThat
 import static org.hamcrest.Matchers.containsString
 import static org.hamcrest.Matchers.not
-import static org.mockito.Mockito.mock
-import static org.mockito.Mockito.when
 
 @SuppressWarnings(['ConfigurationAvoidance', 'GroovyAccessibility'])
 class ValidateExecutableFileActionTest {
@@ -70,20 +68,14 @@ class ValidateExecutableFileActionTest {
         stubTask.descriptor.set(descriptorFile)
     }
 
-    private static FileCopyDetails fileCopyDetails(String path) {
-        FileCopyDetails fileCopyDetails = mock(FileCopyDetails)
-        when(fileCopyDetails.getPath()).thenReturn(path)
-        return fileCopyDetails
-    }
-
-    private static validationAction(Set<FileCopyDetails> files) {
-        new PluginExecutableFilesValidationAction(files)
+    private validationAction(Set<String> paths) {
+        new PluginExecutableFilesValidationAction(paths, XmlReaderCache.register(project.gradle))
     }
 
     @Test
     void 'output warning when executable file is missing'() {
         descriptorFile << AGENT_PLUGIN_DESCRIPTOR
-        Set<FileCopyDetails> files = [fileCopyDetails('test1')]
+        Set<String> files = ['test1']
         Action<Task> validationAction = validationAction(files)
         outputEventListener.reset()
 
@@ -96,7 +88,7 @@ class ValidateExecutableFileActionTest {
     @Test
     void 'does not output warning when executable file is present'() {
         descriptorFile << AGENT_PLUGIN_DESCRIPTOR
-        Set<FileCopyDetails> files = [fileCopyDetails('test1'), fileCopyDetails('bin/test2')]
+        Set<String> files = ['test1', 'bin/test2']
         Action<Task> validationAction =  validationAction(files)
         outputEventListener.reset()
 
@@ -105,4 +97,30 @@ class ValidateExecutableFileActionTest {
         String message = String.format(MISSING_EXECUTABLE_FILE_WARNING, 'bin/test2')
         assertThat(outputEventListener.toString(), not(containsString(message)))
     }
+
+    @Test
+    void 'does not output warning when executable file pattern matches a file'() {
+        descriptorFile << AGENT_PLUGIN_DESCRIPTOR.replace('bin/test2', 'jdk/**/bin/*')
+        Set<String> files = ['test1', 'jdk/jre/bin/java']
+        Action<Task> validationAction = validationAction(files)
+        outputEventListener.reset()
+
+        validationAction.execute(stubTask)
+
+        String message = MISSING_EXECUTABLE_FILE_WARNING.replace('{}', 'jdk/**/bin/*')
+        assertThat(outputEventListener.toString(), not(containsString(message)))
+    }
+
+    @Test
+    void 'output warning when executable file pattern does not match a file'() {
+        descriptorFile << AGENT_PLUGIN_DESCRIPTOR.replace('bin/test2', 'bin/*.sh')
+        Set<String> files = ['test1', 'bin/test.cmd', 'bin/scripts/test.sh']
+        Action<Task> validationAction = validationAction(files)
+        outputEventListener.reset()
+
+        validationAction.execute(stubTask)
+
+        String message = MISSING_EXECUTABLE_FILE_WARNING.replace('{}', 'bin/*.sh')
+        assertThat(outputEventListener.toString(), containsString(message))
+    }
 }
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity
+
+import com.github.rodm.teamcity.internal.LibraryIndexCache
+import com.github.rodm.teamcity.internal.PluginLibrariesValidationAction
+import com.github.rodm.teamcity.tasks.ValidatePluginLibraries
+import org.gradle.api.GradleException
+import org.gradle.api.Project
+import org.gradle.api.Task
+import org.gradle.testfixtures.ProjectBuilder
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.extension.RegisterExtension
+import org.junit.jupiter.api.io.TempDir
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+import static com.github.rodm.teamcity.GradleMatchers.dependsOn
+import static com.github.rodm.teamcity.ValidationMode.FAIL
+import static com.github.rodm.teamcity.ValidationMode.IGNORE
+import static com.github.rodm.teamcity.ValidationMode.WARN
+import static com.github.rodm.teamcity.internal.ValidationReportListener.VALIDATION_REPORT_LISTENER_SERVICE_NAME
+import static org.hamcrest.CoreMatchers.containsString
+import static org.hamcrest.CoreMatchers.equalTo
+import static org.hamcrest.CoreMatchers.is
+import static org.hamcrest.CoreMatchers.not
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.hamcrest.Matchers.contains
+import static org.hamcrest.Matchers.empty
+import static org.junit.jupiter.api.Assertions.assertThrows
+
+@SuppressWarnings('GroovyAccessibility')
+class ValidateLibrariesActionTest {
+
+    private final ResettableOutputEventListener outputEventListener = new ResettableOutputEventListener()
+
+    @RegisterExtension
+    public final ConfigureLogging logging = new ConfigureLogging(outputEventListener)
+
+    private Project project
+    private Task stubTask
+    private List<File> libraries = []
+    private List<List<String>> classes = []
+
+    @BeforeEach
+    void setup(@TempDir File projectDir) {
+        project = ProjectBuilder.builder().withProjectDir(projectDir).build()
+        stubTask = project.tasks.create('stub')
+    }
+
+    private void addLibrary(String name, List<String> classNames) {
+        libraries.add(new File(name))
+        classes.add(classNames)
+    }
+
+    private PluginLibrariesValidationAction createValidationAction(ValidationMode mode = WARN) {
+        new PluginLibrariesValidationAction(mode, libraries, classes)
+    }
+
+    @Test
+    void 'no warnings for libraries without duplicates'() {
+        addLibrary('plugin.jar', ['example/Plugin', 'example/Bean'])
+        addLibrary('common.jar', ['example/common/Util'])
+        def action = createValidationAction()
+
+        action.execute(stubTask)
+
+        assertThat(action.warnings, empty())
+    }
+
+    @Test
+    void 'warns about classes found in more than one library'() {
+        addLibrary('plugin.jar', ['example/Plugin', 'example/Bean'])
+        addLibrary('other.jar', ['example/Plugin', 'example/Bean'])
+        def action = createValidationAction()
+
+        action.execute(stubTask)
+
+        assertThat(action.warnings, contains(":stub: Libraries plugin.jar and other.jar contain duplicate classes (2), including 'example.Plugin'."))
+        assertThat(outputEventListener.toString(), containsString('Libraries plugin.jar and other.jar contain duplicate classes (2)'))
+    }
+
+    @Test
+    void 'warns about packages split across libraries'() {
+        addLibrary('plugin.jar', ['example/Plugin'])
+        addLibrary('other.jar', ['example/Other'])
+        def action = createValidationAction()
+
+        action.execute(stubTask)
+
+        assertThat(action.warnings, contains(":stub: Package 'example' is split across the libraries plugin.jar, other.jar."))
+    }
+
+    @Test
+    void 'does not report a split package when all its classes are duplicates'() {
+        addLibrary('plugin.jar', ['example/Plugin'])
+        addLibrary('copy.jar', ['example/Plugin'])
+        def action = createValidationAction()
+
+        action.execute(stubTask)
+
+        assertThat(action.warnings.size(), equalTo(1))
+        assertThat(action.warnings[0], not(containsString('split')))
+    }
+
+    @Test
+    void 'does not report a split package when only one library has classes not found in other libraries'() {
+        addLibrary('plugin.jar', ['example/Plugin', 'example/Bean'])
+        addLibrary('copy.jar', ['example/Plugin'])
+        def action = createValidationAction()
+
+        action.execute(stubTask)
+
+        assertThat(action.warnings.size(), equalTo(1))
+        assertThat(action.warnings[0], containsString('Libraries plugin.jar and copy.jar contain duplicate classes (1)'))
+    }
+
+    @Test
+    void 'split package lists only the libraries with classes not found in other libraries'() {
+        addLibrary('plugin.jar', ['example/Plugin', 'example/Bean'])
+        addLibrary('other.jar', ['example/Other'])
+        addLibrary('copy.jar', ['example/Plugin'])
+        def action = createValidationAction()
+
+        action.execute(stubTask)
+
+        assertThat(action.warnings, contains(
+            ":stub: Libraries plugin.jar and copy.jar contain duplicate classes (1), including 'example.Plugin'.",
+            ":stub: Package 'example' is split across the libraries plugin.jar, other.jar."))
+    }
+
+    @Test
+    void 'warns about different versions of the same library'() {
+        addLibrary('commons-lang-2.5.jar', ['org/apache/commons/lang/StringUtils'])
+        addLibrary('commons-lang-2.6.jar', ['org/apache/commons/lang/StringUtils'])
+        def action = createValidationAction()
+
+        action.execute(stubTask)
+
+        assertThat(action.warnings[0], equalTo(':stub: Libraries commons-lang-2.5.jar and commons-lang-2.6.jar may be different versions of the same library.'))
+    }
+
+    @Test
+    void 'ignore mode does not check libraries'() {
+        addLibrary('plugin.jar', ['example/Plugin'])
+        addLibrary('other.jar', ['example/Plugin'])
+        def action = createValidationAction(IGNORE)
+
+        action.execute(stubTask)
+
+        assertThat(action.warnings, empty())
+    }
+
+    @Test
+    void 'fail mode fails the build when there are warnings'() {
+        addLibrary('plugin.jar', ['example/Plugin'])
+        addLibrary('other.jar', ['example/Plugin'])
+        def action = createValidationAction(FAIL)
+
+        def e = assertThrows(GradleException, { action.execute(stubTask) })
+
+        assertThat(e.message, equalTo('Plugin libraries validation failed'))
+    }
+
+    @Test
+    void 'library index lists classes excluding module, package info and versioned classes'() {
+        File jar = project.file('library.jar')
+        new ZipOutputStream(new FileOutputStream(jar)).withCloseable { out ->
+            ['module-info.class', 'example/package-info.class', 'example/Plugin.class',
+             'META-INF/versions/11/example/Plugin.class', 'example/plugin.xml'].each { name ->
+                out.putNextEntry(new ZipEntry(name))
+                out.closeEntry()
+            }
+        }
+
+        assertThat(LibraryIndexCache.readClasses(jar), contains('example/Plugin'))
+    }
+
+    @Test
+    void 'validate libraries task writes report'() {
+        project.pluginManager.apply(TeamCityServerPlugin)
+        project.teamcity {
+            validateLibraries = 'warn'
+        }
+        File first = project.file('first.jar')
+        File second = project.file('second.jar')
+        [first, second].each { jar ->
+            new ZipOutputStream(new FileOutputStream(jar)).withCloseable { out ->
+                out.putNextEntry(new ZipEntry('example/Plugin.class'))
+                out.closeEntry()
+            }
+        }
+        project.dependencies.add('server', project.files(first, second))
+        project.file('build/teamcity').mkdirs()
+
+        def task = project.tasks.getByName('validateServerLibraries') as ValidatePluginLibraries
+        task.validate()
+
+        String report = project.file('build/teamcity/server-libraries-validation.txt').text
+        assertThat(report, containsString('Libraries first.jar and second.jar contain duplicate classes (1)'))
+    }
+
+    @Test
+    void 'validate libraries task reports are registered with the validation report listener'() {
+        project.pluginManager.apply(TeamCityServerPlugin)
+        project.pluginManager.apply(TeamCityAgentPlugin)
+
+        def registration = project.gradle.sharedServices.registrations.getByName(VALIDATION_REPORT_LISTENER_SERVICE_NAME)
+        Map<String, File> reports = registration.parameters.reports.get()
+        assertThat(reports[':validateServerLibraries'], equalTo(project.file('build/teamcity/server-libraries-validation.txt')))
+        assertThat(reports[':validateAgentLibraries'], equalTo(project.file('build/teamcity/agent-libraries-validation.txt')))
+    }
+
+    @Test
+    void 'server plugin task depends on validate libraries task'() {
+        project.pluginManager.apply(TeamCityServerPlugin)
+
+        def task = project.tasks.getByName('serverPlugin')
+
+        assertThat(task, dependsOn('validateServerLibraries'))
+        assertThat(project.extensions.getByType(TeamCityPluginExtension).validateLibraries, is(IGNORE))
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.rodm.teamcity
+
+import com.github.rodm.teamcity.internal.PluginDefinition
+import com.github.rodm.teamcity.internal.XmlReaderPool
+import groovy.xml.XmlParser
+import org.gradle.api.GradleException
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+
+import static org.hamcrest.CoreMatchers.equalTo
+import static org.hamcrest.CoreMatchers.is
+import static org.hamcrest.CoreMatchers.not
+import static org.hamcrest.CoreMatchers.nullValue
+import static org.hamcrest.CoreMatchers.sameInstance
+import static org.hamcrest.MatcherAssert.assertThat
+import static org.junit.jupiter.api.Assertions.assertThrows
+
+class ValidationSupportTest {
+
+    private static final String LOAD_EXTERNAL_DTD = 'http://apache.org/xml/features/nonvalidating/load-external-dtd'
+
+    @TempDir
+    File testDir
+
+    @Test
+    void 'pool reuses a released reader'() {
+        def readers = new XmlReaderPool(true)
+        def reader = readers.takeReader()
+        readers.releaseReader(reader)
+
+        assertThat(readers.takeReader(), is(sameInstance(reader)))
+    }
+
+    @Test
+    void 'pool creates a reader for each reader in use'() {
+        def readers = new XmlReaderPool(true)
+
+        assertThat(readers.takeReader(), is(not(sameInstance(readers.takeReader()))))
+    }
+
+    @Test
+    void 'offline pool readers do not load external DTDs'() {
+        assertThat(new XmlReaderPool(true).takeReader().getFeature(LOAD_EXTERNAL_DTD), is(false))
+        assertThat(new XmlReaderPool(false).takeReader().getFeature(LOAD_EXTERNAL_DTD), is(true))
+    }
+
+    @Test
+    void 'released reader does not keep the parsed document'() {
+        File validFile = new File(testDir, 'valid.xml')
+        validFile << '<beans><bean class="example.Plugin"/></beans>'
+        def readers = new XmlReaderPool(true)
+        def reader = readers.takeReader()
+        new XmlParser(reader).parse(validFile)
+
+        readers.releaseReader(reader)
+
+        assertThat(reader.contentHandler, is(nullValue()))
+    }
+
+    @Test
+    void 'reader can be used after a parse failure'() {
+        File invalidFile = new File(testDir, 'invalid.xml')
+        invalidFile << '<beans><bean class="example.Plugin"'
+        File validFile = new File(testDir, 'valid.xml')
+        validFile << '<beans><bean class="example.Plugin"/></beans>'
+        def readers = new XmlReaderPool(true)
+
+        assertThrows(GradleException, { new PluginDefinition(invalidFile).getBeans(readers) })
+        def beans = new PluginDefinition(validFile).getBeans(readers)
+
+        assertThat(beans.size(), equalTo(1))
+    }
+}